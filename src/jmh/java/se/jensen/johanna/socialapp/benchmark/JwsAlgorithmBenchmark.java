@@ -0,0 +1,74 @@
+package se.jensen.johanna.socialapp.benchmark;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import se.jensen.johanna.socialapp.config.SecurityConfig;
+import se.jensen.johanna.socialapp.security.JwkJwtEncoder;
+import se.jensen.johanna.socialapp.security.JwtSigningAlgorithm;
+
+import java.security.KeyPair;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signing and verification throughput of access tokens per {@code app.jwt.algorithm}.
+ * <p>
+ * {@code sign} is paid on every login and refresh, {@code verify} on the first request with each
+ * token (later ones hit the cache of {@code CachingJwtDecoder}). Tokens carry the claims
+ * {@code TokenService} issues. Run with {@code mvn -Pbenchmark -DskipTests test-compile exec:exec
+ * -Djmh.args=JwsAlgorithmBenchmark}.
+ * </p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class JwsAlgorithmBenchmark {
+
+    @Param({"RS256", "ES256", "EdDSA"})
+    private JwtSigningAlgorithm algorithm;
+
+    private JwtEncoder encoder;
+    private JwtDecoder decoder;
+    private JwtEncoderParameters parameters;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        KeyPair keyPair = algorithm.generateKeyPair();
+        JWK signingKey = algorithm.jwk("jwt-key-1", keyPair.getPublic(), keyPair.getPrivate());
+        encoder = new JwkJwtEncoder(signingKey);
+        decoder = SecurityConfig.nimbusJwtDecoder(new JWKSet(signingKey.toPublicJWK()));
+
+        Instant now = Instant.now();
+        parameters = JwtEncoderParameters.from(JwtClaimsSet.builder()
+                .issuer("self")
+                .issuedAt(now)
+                .expiresAt(now.plus(1, ChronoUnit.HOURS))
+                .subject("42")
+                .claim("name", "benchmark")
+                .claim("scope", List.of("ROLE_MEMBER"))
+                .build());
+        token = encoder.encode(parameters).getTokenValue();
+    }
+
+    @Benchmark
+    public Jwt sign() {
+        return encoder.encode(parameters);
+    }
+
+    @Benchmark
+    public Jwt verify() {
+        return decoder.decode(token);
+    }
+}
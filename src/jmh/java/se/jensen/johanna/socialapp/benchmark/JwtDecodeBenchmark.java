@@ -0,0 +1,73 @@
+package se.jensen.johanna.socialapp.benchmark;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import se.jensen.johanna.socialapp.config.SecurityConfig;
+import se.jensen.johanna.socialapp.security.CachingJwtDecoder;
+import se.jensen.johanna.socialapp.security.JwkJwtEncoder;
+import se.jensen.johanna.socialapp.security.JwtSigningAlgorithm;
+
+import java.security.KeyPair;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of authenticating one request with an access token, with and without {@link CachingJwtDecoder}.
+ * <p>
+ * {@code nimbus} verifies the RS256 signature and parses the claims on every call, as before.
+ * {@code cached} is the decoder the application uses, measured on a token it has seen before,
+ * which is every request of a client but the first per token. Tokens are issued like
+ * {@code TokenService} does. Run with {@code mvn -Pbenchmark -DskipTests test-compile exec:exec
+ * -Djmh.args=JwtDecodeBenchmark}.
+ * </p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class JwtDecodeBenchmark {
+
+    @Param({"nimbus", "cached"})
+    private String decoderType;
+
+    private JwtDecoder decoder;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        KeyPair keyPair = JwtSigningAlgorithm.RS256.generateKeyPair();
+        JWK signingKey = JwtSigningAlgorithm.RS256.jwk("jwt-key-1", keyPair.getPublic(), keyPair.getPrivate());
+
+        Instant now = Instant.now();
+        JwtClaimsSet claimsSet = JwtClaimsSet.builder()
+                .issuer("self")
+                .issuedAt(now)
+                .expiresAt(now.plus(1, ChronoUnit.HOURS))
+                .subject("42")
+                .claim("name", "benchmark")
+                .claim("scope", List.of("ROLE_MEMBER"))
+                .build();
+        token = new JwkJwtEncoder(signingKey).encode(JwtEncoderParameters.from(claimsSet)).getTokenValue();
+
+        JwtDecoder nimbus = SecurityConfig.nimbusJwtDecoder(new JWKSet(signingKey.toPublicJWK()));
+        decoder = "nimbus".equals(decoderType)
+                ? nimbus
+                : new CachingJwtDecoder(nimbus, 10_000, new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Jwt decode() {
+        return decoder.decode(token);
+    }
+}
@@ -0,0 +1,54 @@
+package se.jensen.johanna.socialapp.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import se.jensen.johanna.socialapp.security.PasswordHashCalibrator;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU time per login for each password hash setting.
+ * <p>
+ * {@code verify} is what every login costs, {@code verifyAndRehash} a login whose stored hash
+ * is upgraded to the setting. Single-threaded, so the score is also the CPU time one login
+ * occupies a hashing thread. Run with {@code mvn -Pbenchmark -DskipTests test-compile exec:exec}.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class PasswordHashBenchmark {
+    private static final String PASSWORD = "correct horse battery staple";
+
+    @Param({"bcrypt-10", "bcrypt-11", "bcrypt-12", "bcrypt-13", "argon2-2", "argon2-3", "argon2-4"})
+    private String setting;
+
+    private PasswordEncoder encoder;
+    private String storedHash;
+
+    @Setup
+    public void setUp() {
+        String[] parts = setting.split("-");
+        int cost = Integer.parseInt(parts[1]);
+        // argon2 with the default memory and parallelism of application.properties
+        encoder = "bcrypt".equals(parts[0])
+                ? new BCryptPasswordEncoder(cost)
+                : PasswordHashCalibrator.argon2(19456, 1, cost);
+        storedHash = encoder.encode(PASSWORD);
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return encoder.matches(PASSWORD, storedHash);
+    }
+
+    @Benchmark
+    public String verifyAndRehash() {
+        encoder.matches(PASSWORD, storedHash);
+        return encoder.encode(PASSWORD);
+    }
+}
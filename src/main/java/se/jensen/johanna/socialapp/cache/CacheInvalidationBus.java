@@ -0,0 +1,172 @@
+package se.jensen.johanna.socialapp.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Distributes cache invalidations to every node.
+ * <p>
+ * Changes published inside a transaction are collected and sent as a single notification
+ * just before commit. Postgres only delivers {@code NOTIFY} when the transaction commits,
+ * so other nodes never evict for a rolled-back change. The local node evicts after commit.
+ * Notifications from this node are ignored when they come back from the database.
+ * </p>
+ * <p>
+ * Revoked access tokens are sent the same way, see {@link #publishRevocation}.
+ * </p>
+ */
+@Slf4j
+@Component
+public class CacheInvalidationBus {
+    /**
+     * Postgres rejects NOTIFY payloads of 8000 bytes or more
+     */
+    static final int MAX_PAYLOAD_LENGTH = 7900;
+    private static final String FLUSH_ALL = "*";
+    private static final String REVOKED = "revoked:";
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectProvider<InvalidationNotifier> notifier;
+
+    public CacheInvalidationBus(ApplicationEventPublisher eventPublisher,
+                                ObjectProvider<InvalidationNotifier> notifier) {
+        this.eventPublisher = eventPublisher;
+        this.notifier = notifier;
+    }
+
+    /**
+     * Publishes changes to all nodes once the current transaction commits,
+     * or immediately when there is no transaction.
+     *
+     * @param changes the changed data
+     */
+    public void publish(EntityChange... changes) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            Set<EntityChange> committed = new LinkedHashSet<>(Arrays.asList(changes));
+            notifyNodes(committed);
+            evictLocally(committed);
+            return;
+        }
+        pendingChanges().addAll(Arrays.asList(changes));
+    }
+
+    /**
+     * Tells the other nodes to reject an access token until it expires. Sent right away rather than
+     * at commit, a revocation is not part of a transaction's changes. This node revokes it itself.
+     *
+     * @param tokenKey  the key of the token in {@code CachingJwtDecoder}
+     * @param expiresAt when the token expires
+     */
+    public void publishRevocation(String tokenKey, Instant expiresAt) {
+        InvalidationNotifier sender = notifier.getIfAvailable();
+        if (sender != null) {
+            sender.send(nodeId + "|" + REVOKED + tokenKey + ":" + expiresAt.getEpochSecond());
+        }
+    }
+
+    /**
+     * Applies a notification received from the database.
+     *
+     * @param payload the notification payload, {@code nodeId|TYPE:id,TYPE:id}, {@code nodeId|*}
+     *                or {@code nodeId|revoked:tokenKey:exp}
+     */
+    public void receive(String payload) {
+        int separator = payload.indexOf('|');
+        if (separator < 0) {
+            log.warn("Ignoring malformed cache invalidation payload");
+            return;
+        }
+        if (payload.substring(0, separator).equals(nodeId)) {
+            return;
+        }
+        String body = payload.substring(separator + 1);
+        if (body.equals(FLUSH_ALL)) {
+            flushLocally();
+            return;
+        }
+        if (body.startsWith(REVOKED)) {
+            receiveRevocation(body.substring(REVOKED.length()));
+            return;
+        }
+        try {
+            Set<EntityChange> changes = Arrays.stream(body.split(","))
+                    .map(EntityChange::parse)
+                    .collect(Collectors.toCollection(LinkedHashSet::new));
+            evictLocally(changes);
+        } catch (IllegalArgumentException e) {
+            log.warn("Malformed cache invalidation payload, flushing all caches", e);
+            flushLocally();
+        }
+    }
+
+    /**
+     * Clears every local cache, used when notifications may have been missed.
+     */
+    public void flushLocally() {
+        eventPublisher.publishEvent(EntityChangedEvent.all());
+    }
+
+    private void receiveRevocation(String revocation) {
+        int separator = revocation.lastIndexOf(':');
+        try {
+            eventPublisher.publishEvent(new TokenRevokedEvent(revocation.substring(0, separator),
+                    Instant.ofEpochSecond(Long.parseLong(revocation.substring(separator + 1)))));
+        } catch (IndexOutOfBoundsException | NumberFormatException e) {
+            // flushing the caches would not bring the revocation back
+            log.warn("Ignoring malformed token revocation payload", e);
+        }
+    }
+
+    private void evictLocally(Set<EntityChange> changes) {
+        eventPublisher.publishEvent(EntityChangedEvent.of(changes));
+    }
+
+    private void notifyNodes(Set<EntityChange> changes) {
+        InvalidationNotifier sender = notifier.getIfAvailable();
+        if (sender == null || changes.isEmpty()) {
+            return;
+        }
+        String body = changes.stream().map(EntityChange::toString).collect(Collectors.joining(","));
+        String payload = nodeId + "|" + body;
+        sender.send(payload.length() > MAX_PAYLOAD_LENGTH ? nodeId + "|" + FLUSH_ALL : payload);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<EntityChange> pendingChanges() {
+        Set<EntityChange> pending = (Set<EntityChange>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Set<EntityChange> changes = new LinkedHashSet<>();
+            TransactionSynchronizationManager.bindResource(this, changes);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    notifyNodes(changes);
+                }
+
+                @Override
+                public void afterCommit() {
+                    evictLocally(changes);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(CacheInvalidationBus.this);
+                }
+            });
+            pending = changes;
+        }
+        return pending;
+    }
+}
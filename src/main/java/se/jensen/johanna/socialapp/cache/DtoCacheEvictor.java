@@ -0,0 +1,50 @@
+package se.jensen.johanna.socialapp.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import se.jensen.johanna.socialapp.config.CacheConfig;
+
+/**
+ * Evicts the DTO caches in {@link CacheConfig} for committed changes.
+ * <p>
+ * Evictions go straight to the Caffeine caches. Events arrive after commit, where the
+ * transaction-aware caches would defer them to a commit that has already happened.
+ * </p>
+ */
+@Component
+@RequiredArgsConstructor
+public class DtoCacheEvictor {
+    private final CacheManager cacheManager;
+
+    @EventListener
+    public void onEntityChanged(EntityChangedEvent event) {
+        if (event.flushAll()) {
+            cacheManager.getCacheNames().forEach(name -> cache(name).clear());
+            return;
+        }
+        for (EntityChange change : event.changes()) {
+            switch (change.type()) {
+                case USER -> {
+                    cache(CacheConfig.USERS).evict(change.id());
+                    // posts and friend lists embed the user's username and profile image
+                    cache(CacheConfig.POSTS).clear();
+                    cache(CacheConfig.FRIENDS).clear();
+                }
+                case POST -> cache(CacheConfig.POSTS).evict(change.id());
+                case FRIENDS -> cache(CacheConfig.FRIENDS).evict(change.id());
+                case USERS_CREATED, COMMENTS -> {
+                    // lookups of unknown users are not cached, comment pages are not cached as DTOs
+                }
+            }
+        }
+    }
+
+    private Cache cache(String name) {
+        Cache cache = cacheManager.getCache(name);
+        return cache instanceof TransactionAwareCacheDecorator decorator ? decorator.getTargetCache() : cache;
+    }
+}
@@ -0,0 +1,73 @@
+package se.jensen.johanna.socialapp.cache;
+
+/**
+ * A change to cached data, sent between nodes as {@code TYPE:id}.
+ *
+ * @param type what kind of data changed
+ * @param id   ID of the changed user or post, or of the user whose friend list changed
+ */
+public record EntityChange(Type type, Long id) {
+
+    public enum Type {
+        /**
+         * A user profile, id is the user ID
+         */
+        USER,
+        /**
+         * Users were registered, id is unused and 0. Nothing cached embeds a new user yet,
+         * but other nodes may have cached an empty lookup for their emails or usernames.
+         */
+        USERS_CREATED,
+        /**
+         * A post, id is the post ID
+         */
+        POST,
+        /**
+         * The comments of a post, id is the post ID
+         */
+        COMMENTS,
+        /**
+         * A user's friend list, id is the user ID
+         */
+        FRIENDS
+    }
+
+    public static EntityChange user(Long userId) {
+        return new EntityChange(Type.USER, userId);
+    }
+
+    public static EntityChange usersCreated() {
+        return new EntityChange(Type.USERS_CREATED, 0L);
+    }
+
+    public static EntityChange post(Long postId) {
+        return new EntityChange(Type.POST, postId);
+    }
+
+    public static EntityChange comments(Long postId) {
+        return new EntityChange(Type.COMMENTS, postId);
+    }
+
+    public static EntityChange friends(Long userId) {
+        return new EntityChange(Type.FRIENDS, userId);
+    }
+
+    /**
+     * @param value a change in the {@code TYPE:id} wire format
+     * @return the parsed change
+     * @throws IllegalArgumentException if the value is malformed
+     */
+    public static EntityChange parse(String value) {
+        int separator = value.indexOf(':');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Malformed entity change: " + value);
+        }
+        return new EntityChange(Type.valueOf(value.substring(0, separator)),
+                Long.valueOf(value.substring(separator + 1)));
+    }
+
+    @Override
+    public String toString() {
+        return type + ":" + id;
+    }
+}
@@ -0,0 +1,21 @@
+package se.jensen.johanna.socialapp.cache;
+
+import java.util.Set;
+
+/**
+ * Published on every node once a change is committed, locally after commit and
+ * on other nodes when the notification arrives. Cache owners evict on this event.
+ *
+ * @param changes the committed changes, empty when {@code flushAll} is set
+ * @param flushAll true if every cache must be cleared, e.g. after notifications may have been missed
+ */
+public record EntityChangedEvent(Set<EntityChange> changes, boolean flushAll) {
+
+    public static EntityChangedEvent of(Set<EntityChange> changes) {
+        return new EntityChangedEvent(Set.copyOf(changes), false);
+    }
+
+    public static EntityChangedEvent all() {
+        return new EntityChangedEvent(Set.of(), true);
+    }
+}
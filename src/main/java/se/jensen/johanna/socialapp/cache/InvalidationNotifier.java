@@ -0,0 +1,25 @@
+package se.jensen.johanna.socialapp.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sends cache invalidations with {@code pg_notify}. Runs on the connection of the
+ * current transaction, so the notification is delivered only if that transaction commits.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.cache.invalidation.enabled", havingValue = "true")
+public class InvalidationNotifier {
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.cache.invalidation.channel:cache_invalidation}")
+    private String channel;
+
+    public void send(String payload) {
+        jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", channel, payload);
+    }
+}
@@ -0,0 +1,85 @@
+package se.jensen.johanna.socialapp.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight loading: concurrent identical loads share one in-flight result.
+ * <p>
+ * The first caller for a key runs the loader, callers arriving while it runs wait for
+ * and receive the same result or exception. Nothing is kept after the load completes,
+ * this only removes duplicate work during cache-miss storms.
+ * Counted as {@code coalescer.requests} tagged with the load name and
+ * {@code outcome=loaded} or {@code outcome=coalesced}; every coalesced request is a query saved.
+ * </p>
+ */
+@Component
+@RequiredArgsConstructor
+public class RequestCoalescer {
+    private final ConcurrentMap<LoadKey, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    private record LoadKey(String name, Object key) {
+    }
+
+    /**
+     * Runs the loader, or waits for an identical load that is already running.
+     *
+     * @param name   name of the load, used as metric tag
+     * @param key    the load arguments, must implement equals and hashCode
+     * @param loader loads the value, must return an immutable result since it is shared between callers
+     * @return the loaded value
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T load(String name, Object key, Supplier<T> loader) {
+        LoadKey loadKey = new LoadKey(name, key);
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(loadKey, future);
+        if (running != null) {
+            count(name, "coalesced");
+            return (T) await(running);
+        }
+        count(name, "loaded");
+        try {
+            T value = loader.get();
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(loadKey, future);
+        }
+    }
+
+    private Object await(CompletableFuture<Object> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void count(String name, String outcome) {
+        Counter.builder("coalescer.requests")
+                .description("Loads started and requests that shared an in-flight load")
+                .tag("name", name)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+}
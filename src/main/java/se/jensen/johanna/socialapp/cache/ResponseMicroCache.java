@@ -0,0 +1,118 @@
+package se.jensen.johanna.socialapp.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Short-lived cache of serialized response bodies for hot GET endpoints.
+ * <p>
+ * Entries hold the bytes exactly as they were written by the controller, plus a gzip copy
+ * for larger bodies, so a hit skips loading, mapping and serialization.
+ * Entries are removed when the post or user they render changes, and expire after
+ * {@code app.response-cache.ttl} as a bound for anything missed.
+ * </p>
+ */
+@Component
+public class ResponseMicroCache {
+    static final String POSTS_PATH = "/posts";
+    static final String USERS_PATH = "/users/";
+    private static final int MIN_GZIP_SIZE = 1024;
+
+    private final Cache<ResponseKey, CachedResponse> cache;
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * @param path        request path without context path
+     * @param query       query string, or null
+     * @param viewerClass the viewer's authorities, responses can differ between roles
+     */
+    public record ResponseKey(String path, String query, String viewerClass) {
+    }
+
+    /**
+     * @param contentType  content type of the response
+     * @param eTag         entity tag of the response, or null
+     * @param cacheControl Cache-Control header of the response, or null
+     * @param body         the response body
+     * @param gzipBody     the gzip compressed body, or null when the body is too small to be worth compressing
+     */
+    public record CachedResponse(String contentType, String eTag, String cacheControl, byte[] body, byte[] gzipBody) {
+    }
+
+    public ResponseMicroCache(@Value("${app.response-cache.maximum-size:1000}") long maximumSize,
+                              @Value("${app.response-cache.ttl:2s}") Duration ttl,
+                              MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "responses");
+    }
+
+    public CachedResponse get(ResponseKey key) {
+        return cache.getIfPresent(key);
+    }
+
+    /**
+     * Current invalidation generation. Read it before rendering a response and pass it to
+     * {@link #put}, so a response rendered from data that changed meanwhile is not stored.
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    public void put(ResponseKey key, long renderedAtGeneration,
+                    String contentType, String eTag, String cacheControl, byte[] body) {
+        if (generation.get() != renderedAtGeneration) {
+            return;
+        }
+        byte[] gzipBody = body.length >= MIN_GZIP_SIZE ? gzip(body) : null;
+        cache.put(key, new CachedResponse(contentType, eTag, cacheControl, body, gzipBody));
+    }
+
+    @EventListener
+    public void onEntityChanged(EntityChangedEvent event) {
+        generation.incrementAndGet();
+        if (event.flushAll()) {
+            cache.invalidateAll();
+            return;
+        }
+        for (EntityChange change : event.changes()) {
+            switch (change.type()) {
+                case USER -> {
+                    String userPath = USERS_PATH + change.id();
+                    // post lists embed the author's username and profile image
+                    cache.asMap().keySet().removeIf(key ->
+                            key.path().equals(userPath) || key.path().equals(POSTS_PATH));
+                }
+                case POST -> cache.asMap().keySet().removeIf(key -> key.path().equals(POSTS_PATH));
+                case USERS_CREATED, COMMENTS, FRIENDS -> {
+                    // only 200 responses are cached, comment pages and friend lists not at all
+                }
+            }
+        }
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,117 @@
+package se.jensen.johanna.socialapp.cache;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Serves the first page of {@code GET /posts} and {@code GET /users/{userId}} from {@link ResponseMicroCache}.
+ * <p>
+ * Runs after the security filter chain, so only authenticated requests reach the cache.
+ * Responses are cached per URL and viewer class, together with their ETag so conditional requests
+ * are answered with 304 from the cache as well. Any other request passes through untouched.
+ * </p>
+ */
+@Component
+@RequiredArgsConstructor
+public class ResponseMicroCacheFilter extends OncePerRequestFilter {
+    private static final Pattern USER_PATH = Pattern.compile("/users/\\d+");
+
+    private final ResponseMicroCache responseMicroCache;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!HttpMethod.GET.matches(request.getMethod())) {
+            return true;
+        }
+        String path = path(request);
+        if (path.equals(ResponseMicroCache.POSTS_PATH)) {
+            String page = request.getParameter("page");
+            return page != null && !page.equals("0");
+        }
+        return !USER_PATH.matcher(path).matches();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        ResponseMicroCache.ResponseKey key = new ResponseMicroCache.ResponseKey(
+                path(request), request.getQueryString(), viewerClass(authentication));
+
+        ResponseMicroCache.CachedResponse cached = responseMicroCache.get(key);
+        if (cached != null) {
+            write(request, response, cached);
+            return;
+        }
+
+        long generation = responseMicroCache.generation();
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        filterChain.doFilter(request, wrapper);
+        if (wrapper.getStatus() == HttpServletResponse.SC_OK && isJson(wrapper.getContentType())) {
+            responseMicroCache.put(key, generation, wrapper.getContentType(), wrapper.getHeader(HttpHeaders.ETAG),
+                    wrapper.getHeader(HttpHeaders.CACHE_CONTROL), wrapper.getContentAsByteArray());
+        }
+        wrapper.copyBodyToResponse();
+    }
+
+    private void write(HttpServletRequest request,
+                       HttpServletResponse response,
+                       ResponseMicroCache.CachedResponse cached) throws IOException {
+        if (cached.cacheControl() != null) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, cached.cacheControl());
+        }
+        if (cached.eTag() != null && new ServletWebRequest(request, response).checkNotModified(cached.eTag())) {
+            return;
+        }
+        byte[] body = cached.body();
+        if (cached.gzipBody() != null) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+            if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+                body = cached.gzipBody();
+            }
+        }
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(cached.contentType());
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private String viewerClass(Authentication authentication) {
+        return authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .sorted()
+                .collect(Collectors.joining(","));
+    }
+
+    private boolean isJson(String contentType) {
+        return contentType != null && MediaType.APPLICATION_JSON.isCompatibleWith(MediaType.parseMediaType(contentType));
+    }
+}
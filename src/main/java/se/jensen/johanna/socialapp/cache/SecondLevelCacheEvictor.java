@@ -0,0 +1,49 @@
+package se.jensen.johanna.socialapp.cache;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import se.jensen.johanna.socialapp.model.Post;
+import se.jensen.johanna.socialapp.model.User;
+
+/**
+ * Evicts Hibernate second-level cache entries for committed changes.
+ * On the node that made the change Hibernate has already updated the entry,
+ * so this matters for the other nodes.
+ */
+@Component
+public class SecondLevelCacheEvictor {
+    private final org.hibernate.Cache cache;
+
+    public SecondLevelCacheEvictor(EntityManagerFactory entityManagerFactory) {
+        this.cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+    }
+
+    @EventListener
+    public void onEntityChanged(EntityChangedEvent event) {
+        if (event.flushAll()) {
+            cache.evictAllRegions();
+            return;
+        }
+        boolean userLookupsChanged = false;
+        for (EntityChange change : event.changes()) {
+            switch (change.type()) {
+                case USER -> {
+                    cache.evictEntityData(User.class, change.id());
+                    userLookupsChanged = true;
+                }
+                case USERS_CREATED -> userLookupsChanged = true;
+                case POST -> cache.evictEntityData(Post.class, change.id());
+                case COMMENTS, FRIENDS -> {
+                    // not in the second-level cache
+                }
+            }
+        }
+        if (userLookupsChanged) {
+            // username and email lookups, once per event however many users changed
+            cache.evictNaturalIdData(User.class);
+            cache.evictDefaultQueryRegion();
+        }
+    }
+}
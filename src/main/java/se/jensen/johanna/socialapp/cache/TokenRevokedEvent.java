@@ -0,0 +1,12 @@
+package se.jensen.johanna.socialapp.cache;
+
+import java.time.Instant;
+
+/**
+ * Published when another node revoked an access token, see {@link CacheInvalidationBus#publishRevocation}.
+ *
+ * @param tokenKey  the key of the token in {@code CachingJwtDecoder}
+ * @param expiresAt when the token expires, after which it is rejected anyway
+ */
+public record TokenRevokedEvent(String tokenKey, Instant expiresAt) {
+}
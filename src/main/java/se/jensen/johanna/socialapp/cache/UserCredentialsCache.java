@@ -0,0 +1,82 @@
+package se.jensen.johanna.socialapp.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import se.jensen.johanna.socialapp.security.UserCredentials;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Credentials of recently logged in users by username, so repeated logins skip the user lookup.
+ * <p>
+ * Entries are removed when the user changes (profile, role, password or deletion, on any node)
+ * and expire after {@code app.cache.credentials.ttl} as a bound for anything missed.
+ * Statistics are published as {@code cache.*} metrics of the cache {@code credentials}.
+ * </p>
+ */
+@Component
+public class UserCredentialsCache {
+    private final Cache<String, UserCredentials> cache;
+    private final AtomicLong generation = new AtomicLong();
+
+    public UserCredentialsCache(@Value("${app.cache.credentials.maximum-size:10000}") long maximumSize,
+                                @Value("${app.cache.credentials.ttl:5m}") Duration ttl,
+                                MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "credentials");
+    }
+
+    /**
+     * The cached credentials, or those of {@code loader}, which are cached unless the user
+     * changed while they were loaded. Exceptions of the loader are passed on and nothing is cached.
+     */
+    public UserCredentials get(String username, Function<String, UserCredentials> loader) {
+        UserCredentials cached = cache.getIfPresent(username);
+        if (cached != null) {
+            return cached;
+        }
+        long loadedAtGeneration = generation.get();
+        UserCredentials loaded = loader.apply(username);
+        if (generation.get() == loadedAtGeneration) {
+            cache.put(username, loaded);
+        }
+        return loaded;
+    }
+
+    public void evict(String username) {
+        generation.incrementAndGet();
+        cache.invalidate(username);
+    }
+
+    @EventListener
+    public void onEntityChanged(EntityChangedEvent event) {
+        if (event.flushAll()) {
+            generation.incrementAndGet();
+            cache.invalidateAll();
+            return;
+        }
+        Set<Long> userIds = event.changes().stream()
+                .filter(change -> change.type() == EntityChange.Type.USER)
+                .map(EntityChange::id)
+                .collect(Collectors.toSet());
+        if (userIds.isEmpty()) {
+            return;
+        }
+        generation.incrementAndGet();
+        // by id, the username itself may be what changed; one pass over the cache for all users of the event
+        cache.asMap().values().removeIf(credentials -> userIds.contains(credentials.userId()));
+    }
+}
@@ -0,0 +1,55 @@
+package se.jensen.johanna.socialapp.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * In-process caches for read-mostly DTOs.
+ * <p>
+ * Each cache has its own size limit and time-to-live, and records statistics so that hits,
+ * misses and evictions are published per cache as {@code cache.*} metrics.
+ * Puts made inside a transaction are applied after commit. Evictions go through
+ * {@link se.jensen.johanna.socialapp.cache.CacheInvalidationBus}, which reaches every node,
+ * and are applied to the underlying caches by {@link se.jensen.johanna.socialapp.cache.DtoCacheEvictor}.
+ * </p>
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+    public static final String USERS = "users";
+    public static final String POSTS = "posts";
+    public static final String FRIENDS = "friends";
+
+    @Bean
+    public CacheManager cacheManager(@Value("${app.cache.users.maximum-size:10000}") long usersMaximumSize,
+                                     @Value("${app.cache.users.ttl:10m}") Duration usersTtl,
+                                     @Value("${app.cache.posts.maximum-size:10000}") long postsMaximumSize,
+                                     @Value("${app.cache.posts.ttl:5m}") Duration postsTtl,
+                                     @Value("${app.cache.friends.maximum-size:10000}") long friendsMaximumSize,
+                                     @Value("${app.cache.friends.ttl:5m}") Duration friendsTtl) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        // Only the caches registered below, no caches created on the fly for unknown names
+        cacheManager.setCacheNames(List.of());
+        cacheManager.registerCustomCache(USERS, cache(usersMaximumSize, usersTtl));
+        cacheManager.registerCustomCache(POSTS, cache(postsMaximumSize, postsTtl));
+        cacheManager.registerCustomCache(FRIENDS, cache(friendsMaximumSize, friendsTtl));
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+
+    private com.github.benmanes.caffeine.cache.Cache<Object, Object> cache(long maximumSize, Duration ttl) {
+        return Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+}
@@ -0,0 +1,41 @@
+package se.jensen.johanna.socialapp.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records how long each request held database connections, as the {@code http.server.requests.connection.hold}
+ * timer tagged with method and URI pattern. Compared with the request duration it shows how much
+ * of a request actually occupies the connection pool.
+ */
+@Component
+@RequiredArgsConstructor
+public class ConnectionHoldInterceptor implements HandlerInterceptor {
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        ConnectionHoldTimeDataSource.startTracking();
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        long heldNanos = ConnectionHoldTimeDataSource.stopTracking();
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        Timer.builder("http.server.requests.connection.hold")
+                .description("Time a request held pooled database connections")
+                .tag("method", request.getMethod())
+                .tag("uri", pattern != null ? pattern.toString() : "UNKNOWN")
+                .register(meterRegistry)
+                .record(heldNanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,104 @@
+package se.jensen.johanna.socialapp.config;
+
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Measures how long the current thread holds pooled connections, from checkout until close.
+ * <p>
+ * Only active between {@link #startTracking()} and {@link #stopTracking()}, which
+ * {@link ConnectionHoldInterceptor} calls around every request. Connections borrowed
+ * outside of tracking are returned unwrapped.
+ * </p>
+ */
+public class ConnectionHoldTimeDataSource extends DelegatingDataSource {
+    private static final ThreadLocal<long[]> HELD_NANOS = new ThreadLocal<>();
+
+    public ConnectionHoldTimeDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    /**
+     * Starts summing up connection hold time on the current thread.
+     */
+    public static void startTracking() {
+        HELD_NANOS.set(new long[1]);
+    }
+
+    /**
+     * Stops tracking on the current thread.
+     *
+     * @return nanoseconds connections were held since {@link #startTracking()}
+     */
+    public static long stopTracking() {
+        long[] held = HELD_NANOS.get();
+        HELD_NANOS.remove();
+        return held == null ? 0 : held[0];
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return track(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return track(super.getConnection(username, password));
+    }
+
+    private Connection track(Connection connection) {
+        long[] held = HELD_NANOS.get();
+        if (held == null) {
+            return connection;
+        }
+        return (Connection) Proxy.newProxyInstance(ConnectionProxy.class.getClassLoader(),
+                new Class<?>[]{ConnectionProxy.class},
+                new HoldTimeHandler(connection, held, System.nanoTime()));
+    }
+
+    private static final class HoldTimeHandler implements InvocationHandler {
+        private final Connection target;
+        private final long[] held;
+        private final long borrowedAt;
+        private boolean closed;
+
+        private HoldTimeHandler(Connection target, long[] held, long borrowedAt) {
+            this.target = target;
+            this.held = held;
+            this.borrowedAt = borrowedAt;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "getTargetConnection":
+                    return target;
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        held[0] += System.nanoTime() - borrowedAt;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+    }
+}
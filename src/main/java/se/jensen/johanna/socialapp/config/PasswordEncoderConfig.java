@@ -0,0 +1,86 @@
+package se.jensen.johanna.socialapp.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import se.jensen.johanna.socialapp.security.BoundedPasswordEncoder;
+import se.jensen.johanna.socialapp.security.PasswordHashCalibrator;
+
+import java.util.Map;
+
+/**
+ * Password hashing with a cost calibrated at startup to {@code app.password-hashing.target-ms}.
+ * <p>
+ * New hashes use {@code app.password-hashing.algorithm} ({@code bcrypt} or {@code argon2}) and are
+ * stored with an {@code {id}} prefix. Hashes without prefix are the BCrypt hashes from before.
+ * A hash with another algorithm or a lower cost than the current one is replaced on the next successful
+ * login, see {@link se.jensen.johanna.socialapp.service.MyUserDetailsService#updatePassword}. Hashes with a
+ * higher cost are kept: nodes calibrate on their own hardware, and rehashing down as well would make
+ * hashes flip between the costs of different nodes, with a rehash and a write on every other login.
+ * Hashing runs on the bounded pool of {@link BoundedPasswordEncoder}.
+ * </p>
+ */
+@Configuration
+public class PasswordEncoderConfig {
+    static final String BCRYPT = "bcrypt";
+    static final String ARGON2 = "argon2";
+
+    @Value("${app.password-hashing.algorithm:bcrypt}")
+    private String algorithm;
+    @Value("${app.password-hashing.target-ms:250}")
+    private long targetMs;
+    @Value("${app.password-hashing.calibrate:true}")
+    private boolean calibrate;
+    @Value("${app.password-hashing.bcrypt.min-strength:10}")
+    private int bcryptMinStrength;
+    @Value("${app.password-hashing.bcrypt.max-strength:15}")
+    private int bcryptMaxStrength;
+    @Value("${app.password-hashing.argon2.memory-kib:19456}")
+    private int argon2MemoryKib;
+    @Value("${app.password-hashing.argon2.parallelism:1}")
+    private int argon2Parallelism;
+    @Value("${app.password-hashing.argon2.min-iterations:2}")
+    private int argon2MinIterations;
+    @Value("${app.password-hashing.argon2.max-iterations:10}")
+    private int argon2MaxIterations;
+
+    /**
+     * Used both for registration and, through the {@link AuthenticationManager}, for login.
+     */
+    @Bean
+    public BoundedPasswordEncoder passwordEncoder(
+            @Value("${app.password-hashing.threads:0}") int threads,
+            @Value("${app.password-hashing.queue-capacity:64}") int queueCapacity,
+            @Value("${app.password-hashing.retry-after-seconds:1}") int retryAfterSeconds,
+            MeterRegistry meterRegistry) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return new BoundedPasswordEncoder(delegatingPasswordEncoder(), poolSize, queueCapacity,
+                retryAfterSeconds, meterRegistry);
+    }
+
+    private PasswordEncoder delegatingPasswordEncoder() {
+        if (!BCRYPT.equals(algorithm) && !ARGON2.equals(algorithm)) {
+            throw new IllegalStateException("Unknown app.password-hashing.algorithm: " + algorithm);
+        }
+        // only the current algorithm is calibrated, the other one just has to verify old hashes
+        int strength = BCRYPT.equals(algorithm) && calibrate
+                ? PasswordHashCalibrator.bcryptStrength(targetMs, bcryptMinStrength, bcryptMaxStrength)
+                : bcryptMinStrength;
+        int iterations = ARGON2.equals(algorithm) && calibrate
+                ? PasswordHashCalibrator.argon2Iterations(targetMs, argon2MemoryKib, argon2Parallelism,
+                argon2MinIterations, argon2MaxIterations)
+                : argon2MinIterations;
+
+        PasswordEncoder bcrypt = new BCryptPasswordEncoder(strength);
+        PasswordEncoder argon2 = PasswordHashCalibrator.argon2(argon2MemoryKib, argon2Parallelism, iterations);
+
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(algorithm, Map.of(BCRYPT, bcrypt, ARGON2, argon2));
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return encoder;
+    }
+}
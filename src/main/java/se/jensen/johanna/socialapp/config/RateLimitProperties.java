@@ -0,0 +1,31 @@
+package se.jensen.johanna.socialapp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Settings of the request rate limiter, bound from {@code app.rate-limit.*}.
+ *
+ * @param enabled    whether requests are throttled at all
+ * @param maxBuckets the number of clients tracked at once, over all routes
+ * @param routes     the limit per route, by the route's config name
+ */
+@ConfigurationProperties("app.rate-limit")
+public record RateLimitProperties(@DefaultValue("true") boolean enabled,
+                                  @DefaultValue("100000") long maxBuckets,
+                                  Map<String, Limit> routes) {
+
+    public RateLimitProperties {
+        routes = routes == null ? Map.of() : Map.copyOf(routes);
+    }
+
+    /**
+     * @param capacity the requests a client can make at once
+     * @param period   the time in which the capacity is refilled
+     */
+    public record Limit(long capacity, Duration period) {
+    }
+}
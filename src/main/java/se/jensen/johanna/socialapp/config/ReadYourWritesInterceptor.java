@@ -0,0 +1,98 @@
+package se.jensen.johanna.socialapp.config;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseCookie;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.util.WebUtils;
+
+import java.time.Duration;
+
+/**
+ * Gives users read-your-writes on their own {@code /my} endpoints despite replica lag.
+ * <p>
+ * A write request of a logged-in user sets the cookie {@code lastWrite} with the time of the write.
+ * While it is younger than {@code app.datasource.replica.read-your-writes-ms}, the user's reads of
+ * {@code /my/**} are pinned to the primary. The time travels with the client, so this holds whichever
+ * node serves the read, within the clock skew between nodes. All other reads keep going to the replica.
+ * </p>
+ */
+@Component
+public class ReadYourWritesInterceptor implements HandlerInterceptor {
+    static final String LAST_WRITE_COOKIE = "lastWrite";
+    private static final String MY_PATH = "/my";
+
+    private final long windowMs;
+    private final boolean cookieSecure;
+    private final String sameSite;
+
+    public ReadYourWritesInterceptor(@Value("${app.datasource.replica.read-your-writes-ms:5000}") long windowMs,
+                                     @Value("${app.cookie.secure:true}") boolean cookieSecure,
+                                     @Value("${app.cookie.same-site:Strict}") String sameSite) {
+        this.windowMs = windowMs;
+        this.cookieSecure = cookieSecure;
+        this.sameSite = sameSite;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getUserPrincipal() == null) {
+            return true;
+        }
+        if (!isRead(request)) {
+            // set before the handler runs, the response may be committed afterwards
+            response.addHeader(HttpHeaders.SET_COOKIE, lastWriteCookie(System.currentTimeMillis()).toString());
+        } else if (isMyEndpoint(request) && isRecent(lastWrite(request))) {
+            ReadWriteRoutingDataSource.forcePrimary();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        ReadWriteRoutingDataSource.clearForcePrimary();
+    }
+
+    private ResponseCookie lastWriteCookie(long now) {
+        return ResponseCookie.from(LAST_WRITE_COOKIE, String.valueOf(now))
+                .httpOnly(true)
+                .secure(cookieSecure)
+                .path(MY_PATH)
+                .maxAge(Duration.ofMillis(windowMs).plusMillis(999).toSeconds())
+                .sameSite(sameSite)
+                .build();
+    }
+
+    private long lastWrite(HttpServletRequest request) {
+        Cookie cookie = WebUtils.getCookie(request, LAST_WRITE_COOKIE);
+        if (cookie == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(cookie.getValue());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private boolean isRecent(long lastWrite) {
+        // allows for clock skew between nodes, not for a cookie set far into the future
+        long age = System.currentTimeMillis() - lastWrite;
+        return age < windowMs && age > -windowMs;
+    }
+
+    private boolean isRead(HttpServletRequest request) {
+        String method = request.getMethod();
+        return HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method) || HttpMethod.OPTIONS.matches(method);
+    }
+
+    private boolean isMyEndpoint(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return path.equals(MY_PATH) || path.startsWith(MY_PATH + "/");
+    }
+}
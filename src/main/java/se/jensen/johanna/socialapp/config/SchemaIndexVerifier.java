@@ -0,0 +1,125 @@
+package se.jensen.johanna.socialapp.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Checks on startup that the indexes the hot read queries rely on exist.
+ * <p>
+ * A missing index does not break anything functionally, the queries just fall back to scanning
+ * whole tables, which only shows once the tables grow. Each expected index is matched on its
+ * leading columns, so an equivalent index with another name (e.g. from a unique constraint) also counts.
+ * Startup fails with the list of missing indexes, disable with {@code app.schema.verify-indexes=false}.
+ * </p>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SchemaIndexVerifier implements SmartInitializingSingleton {
+    static final List<ExpectedIndex> EXPECTED_INDEXES = List.of(
+            new ExpectedIndex("posts", "created_at", "post_id"),
+            new ExpectedIndex("posts", "user_id", "created_at"),
+            new ExpectedIndex("comments", "post_id", "parent_id", "created_at"),
+            new ExpectedIndex("comments", "post_id", "parent_id", "score"),
+            new ExpectedIndex("comments", "parent_id", "created_at"),
+            new ExpectedIndex("post_likes", "post_id", "user_id"),
+            new ExpectedIndex("comment_likes", "comment_id", "user_id"),
+            new ExpectedIndex("friendships", "sender_id", "status"),
+            new ExpectedIndex("friendships", "receiver_id", "status"),
+            new ExpectedIndex("refresh_tokens", "token_hash"),
+            new ExpectedIndex("refresh_tokens", "user_id"),
+            new ExpectedIndex("refresh_tokens", "expiry_date"));
+
+    private final DataSource dataSource;
+    // The migrations must have run before the schema is inspected
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Value("${app.schema.verify-indexes:true}")
+    private boolean verifyIndexes;
+
+    /**
+     * An index on {@code table} whose first columns are {@code columns}, in that order.
+     */
+    record ExpectedIndex(String table, String... columns) {
+        @Override
+        public String toString() {
+            return table + " (" + String.join(", ", columns) + ")";
+        }
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!verifyIndexes) {
+            return;
+        }
+        List<ExpectedIndex> missing = missingIndexes();
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("Missing indexes for hot queries: " + missing);
+        }
+        log.info("All {} indexes for hot queries are present", EXPECTED_INDEXES.size());
+    }
+
+    /**
+     * @return the expected indexes that no index in the current schema starts with.
+     */
+    public List<ExpectedIndex> missingIndexes() {
+        try {
+            return JdbcUtils.extractDatabaseMetaData(dataSource, metaData -> {
+                List<ExpectedIndex> missing = new ArrayList<>();
+                for (ExpectedIndex expected : EXPECTED_INDEXES) {
+                    if (!hasIndex(metaData, expected)) {
+                        missing.add(expected);
+                    }
+                }
+                return missing;
+            });
+        } catch (MetaDataAccessException e) {
+            throw new IllegalStateException("Could not read the indexes of the schema", e);
+        }
+    }
+
+    private boolean hasIndex(DatabaseMetaData metaData, ExpectedIndex expected) throws SQLException {
+        String table = metaData.storesUpperCaseIdentifiers() ? expected.table().toUpperCase() : expected.table();
+        Map<String, Map<Short, String>> columnsByIndex = new TreeMap<>();
+        try (ResultSet rs = metaData.getIndexInfo(null, null, table, false, false)) {
+            while (rs.next()) {
+                String index = rs.getString("INDEX_NAME");
+                String column = rs.getString("COLUMN_NAME");
+                if (index != null && column != null) {
+                    columnsByIndex.computeIfAbsent(index, name -> new TreeMap<>())
+                            .put(rs.getShort("ORDINAL_POSITION"), column);
+                }
+            }
+        }
+        return columnsByIndex.values().stream()
+                .map(columns -> new ArrayList<>(columns.values()))
+                .anyMatch(columns -> startsWith(columns, expected.columns()));
+    }
+
+    private static boolean startsWith(List<String> indexColumns, String[] expectedColumns) {
+        if (indexColumns.size() < expectedColumns.length) {
+            return false;
+        }
+        for (int i = 0; i < expectedColumns.length; i++) {
+            if (!indexColumns.get(i).equalsIgnoreCase(expectedColumns[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
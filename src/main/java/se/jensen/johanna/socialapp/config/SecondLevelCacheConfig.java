@@ -0,0 +1,76 @@
+package se.jensen.johanna.socialapp.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+
+/**
+ * Hibernate second-level cache backed by Caffeine through JCache.
+ * <p>
+ * Every region is created here with its own size limit and time-to-live from {@code app.l2cache.*},
+ * and Hibernate is configured to fail on regions that are not, so a new cached entity
+ * cannot silently get an unbounded cache.
+ * </p>
+ */
+@Configuration
+public class SecondLevelCacheConfig {
+    public static final String USERS_REGION = "users";
+    public static final String USERS_NATURAL_ID_REGION = "users-natural-id";
+    public static final String POSTS_REGION = "posts";
+    private static final String QUERY_RESULTS_REGION = "default-query-results-region";
+    private static final String UPDATE_TIMESTAMPS_REGION = "default-update-timestamps-region";
+
+    @Value("${app.l2cache.users.maximum-size:10000}")
+    private long usersMaximumSize;
+    @Value("${app.l2cache.users.ttl:30m}")
+    private Duration usersTtl;
+    @Value("${app.l2cache.posts.maximum-size:10000}")
+    private long postsMaximumSize;
+    @Value("${app.l2cache.posts.ttl:10m}")
+    private Duration postsTtl;
+    @Value("${app.l2cache.queries.maximum-size:10000}")
+    private long queriesMaximumSize;
+    @Value("${app.l2cache.queries.ttl:10m}")
+    private Duration queriesTtl;
+
+    @Bean
+    public CacheManager secondLevelCacheManager() {
+        // A provider per application context, so test contexts do not share regions
+        CacheManager cacheManager = new CaffeineCachingProvider()
+                .getCacheManager(URI.create("socialapp-l2"), getClass().getClassLoader());
+        cacheManager.createCache(USERS_REGION, region(usersMaximumSize, usersTtl));
+        cacheManager.createCache(USERS_NATURAL_ID_REGION, region(usersMaximumSize, usersTtl));
+        cacheManager.createCache(POSTS_REGION, region(postsMaximumSize, postsTtl));
+        cacheManager.createCache(QUERY_RESULTS_REGION, region(queriesMaximumSize, queriesTtl));
+        // Must outlive every cached query result, so it is bounded by size only
+        cacheManager.createCache(UPDATE_TIMESTAMPS_REGION, region(queriesMaximumSize, null));
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager secondLevelCacheManager) {
+        return properties -> {
+            properties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    private CaffeineConfiguration<Object, Object> region(long maximumSize, Duration ttl) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(maximumSize));
+        if (ttl != null) {
+            configuration.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+        }
+        configuration.setStatisticsEnabled(true);
+        return configuration;
+    }
+}
@@ -1,9 +1,8 @@
 package se.jensen.johanna.socialapp.config;
 
+import com.nimbusds.jose.jwk.JWK;
 import com.nimbusds.jose.jwk.JWKSet;
-import com.nimbusds.jose.jwk.RSAKey;
-import com.nimbusds.jose.jwk.source.JWKSource;
-import com.nimbusds.jose.proc.SecurityContext;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -13,29 +12,23 @@ import org.springframework.security.config.annotation.method.configuration.Enabl
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
-import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.JwtEncoder;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
-import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
-import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
-import org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
+import se.jensen.johanna.socialapp.cache.CacheInvalidationBus;
+import se.jensen.johanna.socialapp.security.CachingJwtDecoder;
+import se.jensen.johanna.socialapp.security.JwkJwtEncoder;
+import se.jensen.johanna.socialapp.security.JwtSigningAlgorithm;
+import se.jensen.johanna.socialapp.security.JwtUserAuthenticationConverter;
+import se.jensen.johanna.socialapp.security.KeyIdJwtProcessor;
 
-import java.security.KeyFactory;
-import java.security.KeyPair;
-import java.security.PrivateKey;
-import java.security.PublicKey;
-import java.security.interfaces.RSAPrivateKey;
-import java.security.interfaces.RSAPublicKey;
-import java.security.spec.PKCS8EncodedKeySpec;
-import java.security.spec.X509EncodedKeySpec;
 import java.util.Arrays;
-import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @Configuration
 @EnableMethodSecurity
@@ -100,59 +93,69 @@ public class SecurityConfig {
         return source;
     }
 
+    /**
+     * The key new access tokens are signed with, of the type {@code app.jwt.algorithm} needs.
+     * Tokens carry {@code app.jwt.key-id} as {@code kid}.
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public JWK jwtSigningKey(@Value("${app.jwt.algorithm:RS256}") JwtSigningAlgorithm algorithm,
+                             @Value("${app.jwt.key-id:jwt-key-1}") String keyId,
+                             @Value("${jwt.private-key}") String privateKey,
+                             @Value("${jwt.public-key}") String publicKey) {
+        return algorithm.jwk(keyId, algorithm.parsePublicKey(publicKey), algorithm.parsePrivateKey(privateKey));
     }
 
+    /**
+     * The public keys access tokens are accepted from, selected by the {@code kid} of the token:
+     * the signing key and, after a key rotation, the previous keys listed in {@code app.jwt.previous-keys}.
+     */
     @Bean
-    public KeyPair keyPair(@Value("${jwt.private-key}") String privateKey,
-                           @Value("${jwt.public-key}") String publicKey) throws Exception {
-        byte[] privateBytes = Base64.getDecoder().decode(privateKey);
-        byte[] publicBytes = Base64.getDecoder().decode(publicKey);
-        KeyFactory keyFactory = KeyFactory.getInstance("RSA");
-        PrivateKey privKey = keyFactory.generatePrivate(
-                new PKCS8EncodedKeySpec(privateBytes)
-        );
-        PublicKey pubKey = keyFactory.generatePublic(
-                new X509EncodedKeySpec(publicBytes)
-        );
-        return new KeyPair(pubKey, privKey);
-
+    public JWKSet jwtVerificationKeys(JWK jwtSigningKey,
+                                      @Value("${app.jwt.previous-keys:}") List<String> previousKeys) {
+        Map<String, JWK> keys = new LinkedHashMap<>();
+        keys.put(jwtSigningKey.getKeyID(), jwtSigningKey.toPublicJWK());
+        for (String previousKey : previousKeys) {
+            if (previousKey.isBlank()) {
+                continue;
+            }
+            JWK key = JwtSigningAlgorithm.verificationKey(previousKey);
+            if (keys.putIfAbsent(key.getKeyID(), key) != null) {
+                throw new IllegalStateException("Duplicate JWT key id " + key.getKeyID());
+            }
+        }
+        return new JWKSet(List.copyOf(keys.values()));
     }
 
     @Bean
-    public JWKSource<SecurityContext> jwkSource(KeyPair keyPair) {
-        RSAKey rsaKey = new RSAKey.Builder((RSAPublicKey) keyPair.getPublic())
-                .privateKey((RSAPrivateKey) keyPair.getPrivate())
-                .keyID("jwt-key-1")
-                .build();
-        JWKSet jwkSet = new JWKSet(rsaKey);
-        return (jwkSelector, context) -> jwkSelector.select(jwkSet);
+    public JwtEncoder jwtEncoder(JWK jwtSigningKey) {
+        return new JwkJwtEncoder(jwtSigningKey);
     }
 
+    /**
+     * Verifies access tokens, each token only on its first request, see {@link CachingJwtDecoder}.
+     */
     @Bean
-    public JwtEncoder jwtEncoder(JWKSource<SecurityContext> jwkSource) {
-        return new NimbusJwtEncoder(jwkSource);
+    public CachingJwtDecoder jwtDecoder(JWKSet jwtVerificationKeys,
+                                        @Value("${app.jwt.decoder-cache.maximum-size:10000}") long maximumSize,
+                                        MeterRegistry meterRegistry,
+                                        CacheInvalidationBus cacheInvalidationBus) {
+        return new CachingJwtDecoder(nimbusJwtDecoder(jwtVerificationKeys), maximumSize, meterRegistry,
+                cacheInvalidationBus::publishRevocation);
     }
 
-    @Bean
-    public JwtDecoder jwtDecoder(KeyPair keyPair) {
-        return NimbusJwtDecoder
-                .withPublicKey((RSAPublicKey) keyPair.getPublic())
-                .build();
+    /**
+     * A decoder accepting tokens signed by any of the keys, each key only with its own algorithm.
+     */
+    public static NimbusJwtDecoder nimbusJwtDecoder(JWKSet verificationKeys) {
+        return new NimbusJwtDecoder(new KeyIdJwtProcessor(verificationKeys));
     }
 
+    /**
+     * Resolves the principal of a request from the token alone, see {@link JwtUserAuthenticationConverter}.
+     */
     @Bean
-    public JwtAuthenticationConverter jwtAuthenticationConverter() {
-        JwtGrantedAuthoritiesConverter converter =
-                new JwtGrantedAuthoritiesConverter();
-        converter.setAuthorityPrefix("");
-        converter.setAuthoritiesClaimName("scope");
-        JwtAuthenticationConverter authenticationConverter =
-                new JwtAuthenticationConverter();
-        authenticationConverter.setJwtGrantedAuthoritiesConverter(converter);
-        return authenticationConverter;
+    public JwtUserAuthenticationConverter jwtAuthenticationConverter() {
+        return new JwtUserAuthenticationConverter();
     }
 
     @Bean
@@ -0,0 +1,24 @@
+package se.jensen.johanna.socialapp.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Registers the application's MVC interceptors and the settings of the request rate limiter.
+ */
+@Configuration
+@EnableConfigurationProperties(RateLimitProperties.class)
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+    private final ReadYourWritesInterceptor readYourWritesInterceptor;
+    private final ConnectionHoldInterceptor connectionHoldInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(connectionHoldInterceptor);
+        registry.addInterceptor(readYourWritesInterceptor);
+    }
+}
@@ -7,16 +7,21 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import se.jensen.johanna.socialapp.dto.*;
+import se.jensen.johanna.socialapp.dto.admin.BulkUserResponse;
 import se.jensen.johanna.socialapp.dto.admin.RoleRequest;
 import se.jensen.johanna.socialapp.dto.admin.RoleResponse;
 import se.jensen.johanna.socialapp.service.CommentService;
 import se.jensen.johanna.socialapp.service.PostService;
+import se.jensen.johanna.socialapp.service.UserProvisioningService;
 import se.jensen.johanna.socialapp.service.UserService;
 
+import java.util.List;
+
 /**
  * Controller handling all Admin-related operations
  * Provides endpoints to edit and delete users, posts and comments
@@ -29,6 +34,7 @@ public class AdminController {
     private final UserService userService;
     private final PostService postService;
     private final CommentService commentService;
+    private final UserProvisioningService userProvisioningService;
 
 
     /**
@@ -45,6 +51,30 @@ public class AdminController {
 
     }
 
+    /**
+     * Creates MEMBER accounts for a list of registrations, e.g. when onboarding an organisation.
+     * Rows that are invalid or already registered are skipped and reported, the others are created.
+     *
+     * @param requests the registrations
+     * @return a {@link ResponseEntity} containing a {@link BulkUserResponse} with one result per row
+     */
+    @PostMapping(value = "/users/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BulkUserResponse> provisionUsers(@RequestBody List<RegisterUserRequest> requests) {
+        return ResponseEntity.ok(userProvisioningService.provision(requests));
+    }
+
+    /**
+     * Creates MEMBER accounts from a CSV upload with the header
+     * {@code email,username,password[,confirmPassword]}.
+     *
+     * @param csv the CSV text
+     * @return a {@link ResponseEntity} containing a {@link BulkUserResponse} with one result per data row
+     */
+    @PostMapping(value = "/users/bulk", consumes = "text/csv")
+    public ResponseEntity<BulkUserResponse> provisionUsersCsv(@RequestBody String csv) {
+        return ResponseEntity.ok(userProvisioningService.provisionCsv(csv));
+    }
+
     /**
      * Grants or updates roles for a user.
      *
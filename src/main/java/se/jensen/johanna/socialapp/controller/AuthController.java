@@ -6,9 +6,9 @@ import org.springframework.http.ResponseCookie;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import se.jensen.johanna.socialapp.dto.*;
+import se.jensen.johanna.socialapp.security.CachingJwtDecoder;
 import se.jensen.johanna.socialapp.service.AuthService;
 import se.jensen.johanna.socialapp.service.RefreshTokenService;
-import se.jensen.johanna.socialapp.service.UserService;
 import se.jensen.johanna.socialapp.util.CookieUtils;
 
 /**
@@ -20,8 +20,10 @@ import se.jensen.johanna.socialapp.util.CookieUtils;
 @RequestMapping("/auth")
 @RequiredArgsConstructor
 public class AuthController {
-    private final UserService userService;
+    private static final String BEARER_PREFIX = "Bearer ";
+
     private final RefreshTokenService refreshTokenService;
+    private final CachingJwtDecoder jwtDecoder;
     private final CookieUtils cookieUtils;
     private final AuthService authService;
 
@@ -65,7 +67,7 @@ public class AuthController {
     }
 
     /**
-     * Creates a new user and authenticates them automatically for a smooth client experience.
+     * Creates a new user and issues tokens for them right away for a smooth client experience.
      * Sets a refresh token as an HTTP-only cookie.
      *
      * @param registerUserRequest contains username, password and user details
@@ -75,8 +77,7 @@ public class AuthController {
     public ResponseEntity<LoginResponse> register(@RequestBody
                                                   RegisterUserRequest registerUserRequest) {
 
-        userService.registerUser(registerUserRequest);
-        LoginResult result = authService.login(new LoginRequest(registerUserRequest.username(), registerUserRequest.password()));
+        LoginResult result = authService.register(registerUserRequest);
         ResponseCookie responseCookie = cookieUtils.createRefreshCookie(result.refreshToken());
 
 
@@ -87,18 +88,24 @@ public class AuthController {
 
     /**
      * Logs out a user by deleting their refresh token and clearing the cookie.
+     * The access token sent along, if any, is revoked so it cannot be used until it expires.
      *
      * @param refreshTokenStr the refresh token from cookie, optional
+     * @param authorization   the Authorization header with the access token, optional
      * @return empty Response with clear header
      */
     @PostMapping("/logout")
     public ResponseEntity<Void> logout(
-            @CookieValue(name = "refreshToken", required = false) String refreshTokenStr
+            @CookieValue(name = "refreshToken", required = false) String refreshTokenStr,
+            @RequestHeader(name = HttpHeaders.AUTHORIZATION, required = false) String authorization
 
     ) {
         if (refreshTokenStr != null) {
             refreshTokenService.deleteRefreshToken(refreshTokenStr);
         }
+        if (authorization != null && authorization.startsWith(BEARER_PREFIX)) {
+            jwtDecoder.revoke(authorization.substring(BEARER_PREFIX.length()));
+        }
         ResponseCookie cleanCookie = cookieUtils.getCleanResponseCookie();
 
         return ResponseEntity.noContent().header(HttpHeaders.SET_COOKIE, cleanCookie.toString()).build();
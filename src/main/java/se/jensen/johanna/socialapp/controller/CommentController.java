@@ -7,13 +7,15 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import se.jensen.johanna.socialapp.dto.*;
-import se.jensen.johanna.socialapp.security.MyUserDetails;
+import se.jensen.johanna.socialapp.security.AuthenticatedUser;
 import se.jensen.johanna.socialapp.service.CommentService;
 
 
@@ -32,6 +34,9 @@ public class CommentController {
 
     /**
      * Retrieves all main comments for a post
+     * Pass {@code sort=top} to rank comments by likes, replies and age instead of creation time.
+     * Answers 304 Not Modified without loading comments when {@code If-None-Match} matches the ETag
+     * of the post's comments.
      *
      * @param postId ID of the post to fetch comments to
      * @return {@link CommentDTO}
@@ -39,10 +44,41 @@ public class CommentController {
     @GetMapping("/posts/{postId}/comments")
     public ResponseEntity<Page<CommentDTO>> getAllCommentsForPost(
             @PathVariable Long postId,
-            @ParameterObject @PageableDefault(size = 10, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable) {
-
+            @AuthenticationPrincipal AuthenticatedUser user,
+            @ParameterObject @PageableDefault(size = 10, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable,
+            WebRequest webRequest) {
+
+        String eTag = commentService.getCommentsETag(postId, viewerId(user));
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(eTag).cacheControl(CacheControl.noCache().cachePrivate())
+                .body(commentService.findAllMainComments(postId, viewerId(user), pageable));
+    }
 
-        return ResponseEntity.ok(commentService.findAllMainComments(postId, pageable));
+    /**
+     * Retrieves main comments for a post with cursor-based pagination, newest first.
+     * Stays fast on posts with many comments since it never skips rows with an offset.
+     *
+     * @param postId ID of the post to fetch comments to
+     * @param cursor nextCursor from the previous response, omit for the first slice
+     * @param size   max number of comments to return
+     * @return {@link CursorPage} of {@link CommentDTO}
+     */
+    @GetMapping("/posts/{postId}/comments/scroll")
+    public ResponseEntity<CursorPage<CommentDTO>> scrollCommentsForPost(
+            @PathVariable Long postId,
+            @AuthenticationPrincipal AuthenticatedUser user,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            WebRequest webRequest) {
+
+        String eTag = commentService.getCommentsETag(postId, viewerId(user));
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(eTag).cacheControl(CacheControl.noCache().cachePrivate())
+                .body(commentService.scrollMainComments(postId, viewerId(user), cursor, size));
     }
 
     /**
@@ -56,12 +92,12 @@ public class CommentController {
     @PostMapping("/posts/{postId}/comments")
     public ResponseEntity<CommentResponse> postComment(
             @PathVariable Long postId,
-            @AuthenticationPrincipal MyUserDetails userDetails,
+            @AuthenticationPrincipal AuthenticatedUser user,
             @RequestBody @Valid CommentRequest commentRequest) {
 
 
         return ResponseEntity.status(HttpStatus.CREATED)
-                .body(commentService.commentPost(postId, userDetails.getUserId(), commentRequest));
+                .body(commentService.commentPost(postId, user.userId(), commentRequest));
 
     }
 
@@ -78,13 +114,13 @@ public class CommentController {
     @PostMapping("/comments/{commentId}/replies")
     public ResponseEntity<ReplyCommentResponse> replyComment(
             @PathVariable Long commentId,
-            @AuthenticationPrincipal MyUserDetails userDetails,
+            @AuthenticationPrincipal AuthenticatedUser user,
             @RequestBody @Valid CommentRequest commentRequest
     ) {
 
 
         return ResponseEntity.status(HttpStatus.CREATED)
-                .body(commentService.replyComment(commentId, userDetails.getUserId(), commentRequest));
+                .body(commentService.replyComment(commentId, user.userId(), commentRequest));
 
 
     }
@@ -100,10 +136,41 @@ public class CommentController {
     @GetMapping("/comments/{commentId}/replies")
     public ResponseEntity<Page<CommentDTO>> getAllRepliesForComment(
             @PathVariable Long commentId,
-            @ParameterObject @PageableDefault(size = 5, sort = "createdAt", direction = Sort.Direction.ASC) Pageable pageable) {
+            @AuthenticationPrincipal AuthenticatedUser user,
+            @ParameterObject @PageableDefault(size = 5, sort = "createdAt", direction = Sort.Direction.ASC) Pageable pageable,
+            WebRequest webRequest) {
 
-        return ResponseEntity.ok(commentService.findAllRepliesForComment(commentId, pageable));
+        String eTag = commentService.getRepliesETag(commentId, viewerId(user));
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(eTag).cacheControl(CacheControl.noCache().cachePrivate())
+                .body(commentService.findAllRepliesForComment(commentId, viewerId(user), pageable));
+
+    }
 
+    /**
+     * Retrieves replies to a specific comment with cursor-based pagination, oldest first.
+     *
+     * @param commentId ID of comment
+     * @param cursor    nextCursor from the previous response, omit for the first slice
+     * @param size      max number of replies to return
+     * @return {@link CursorPage} of {@link CommentDTO}
+     */
+    @GetMapping("/comments/{commentId}/replies/scroll")
+    public ResponseEntity<CursorPage<CommentDTO>> scrollRepliesForComment(
+            @PathVariable Long commentId,
+            @AuthenticationPrincipal AuthenticatedUser user,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "5") int size,
+            WebRequest webRequest) {
+
+        String eTag = commentService.getRepliesETag(commentId, viewerId(user));
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(eTag).cacheControl(CacheControl.noCache().cachePrivate())
+                .body(commentService.scrollRepliesForComment(commentId, viewerId(user), cursor, size));
     }
 
     /**
@@ -118,11 +185,11 @@ public class CommentController {
     @PatchMapping("/comments/{commentId}")
     public ResponseEntity<UpdateCommentResponse> updateComment(
             @PathVariable Long commentId,
-            @AuthenticationPrincipal MyUserDetails userDetails,
+            @AuthenticationPrincipal AuthenticatedUser user,
             @RequestBody @Valid CommentRequest commentRequest
     ) {
 
-        return ResponseEntity.ok(commentService.updateComment(commentId, userDetails.getUserId(), commentRequest));
+        return ResponseEntity.ok(commentService.updateComment(commentId, user.userId(), commentRequest));
     }
 
     /**
@@ -134,12 +201,20 @@ public class CommentController {
     @PreAuthorize("isAuthenticated()")
     @DeleteMapping("/comments/{commentId}")
     public ResponseEntity<Void> deleteComment(
-            @AuthenticationPrincipal MyUserDetails userDetails,
+            @AuthenticationPrincipal AuthenticatedUser user,
             @PathVariable Long commentId) {
 
 
-        commentService.deleteComment(commentId, userDetails.getUserId());
+        commentService.deleteComment(commentId, user.userId());
 
         return ResponseEntity.noContent().build();
     }
+
+    /**
+     * Comment pages are readable without a resolved principal,
+     * in which case likedByMe is false for every comment.
+     */
+    private Long viewerId(AuthenticatedUser user) {
+        return user != null ? user.userId() : null;
+    }
 }
@@ -7,7 +7,7 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import se.jensen.johanna.socialapp.dto.FriendResponseDTO;
-import se.jensen.johanna.socialapp.security.MyUserDetails;
+import se.jensen.johanna.socialapp.security.AuthenticatedUser;
 import se.jensen.johanna.socialapp.service.FriendshipService;
 
 /**
@@ -34,10 +34,10 @@ public class FriendshipController {
     @PostMapping("/{receiverId}")
     public ResponseEntity<FriendResponseDTO> sendFriendRequest(
             @PathVariable Long receiverId,
-            @AuthenticationPrincipal MyUserDetails userDetails
+            @AuthenticationPrincipal AuthenticatedUser user
     ) {
 
-        return ResponseEntity.status(HttpStatus.CREATED).body(friendshipService.sendFriendRequest(userDetails.getUserId(), receiverId));
+        return ResponseEntity.status(HttpStatus.CREATED).body(friendshipService.sendFriendRequest(user.userId(), receiverId));
 
     }
 
@@ -52,10 +52,10 @@ public class FriendshipController {
     @PutMapping("/{friendshipId}/accept")
     public ResponseEntity<FriendResponseDTO> acceptFriendRequest(
             @PathVariable Long friendshipId,
-            @AuthenticationPrincipal MyUserDetails userDetails
+            @AuthenticationPrincipal AuthenticatedUser user
     ) {
 
-        return ResponseEntity.ok(friendshipService.acceptFriendRequest(friendshipId, userDetails.getUserId()));
+        return ResponseEntity.ok(friendshipService.acceptFriendRequest(friendshipId, user.userId()));
 
     }
 
@@ -70,9 +70,9 @@ public class FriendshipController {
     @PutMapping("/{friendshipId}/reject")
     public ResponseEntity<Void> rejectFriendRequest(
             @PathVariable Long friendshipId,
-            @AuthenticationPrincipal MyUserDetails userDetails
+            @AuthenticationPrincipal AuthenticatedUser user
     ) {
-        friendshipService.rejectFriendRequest(friendshipId, userDetails.getUserId());
+        friendshipService.rejectFriendRequest(friendshipId, user.userId());
 
 
         return ResponseEntity.noContent().build();
@@ -90,9 +90,9 @@ public class FriendshipController {
     @DeleteMapping("{friendshipId}")
     public ResponseEntity<Void> deleteFriendship(
             @PathVariable Long friendshipId,
-            @AuthenticationPrincipal MyUserDetails userDetails) {
+            @AuthenticationPrincipal AuthenticatedUser user) {
 
-        friendshipService.deleteFriendship(friendshipId, userDetails.getUserId());
+        friendshipService.deleteFriendship(friendshipId, user.userId());
 
         return ResponseEntity.noContent().build();
 
@@ -101,7 +101,7 @@ public class FriendshipController {
     @GetMapping("/status/{targetUserId}")
     public ResponseEntity<FriendshipStatusDTO> getFriendshipStatus(
             @PathVariable Long targetUserId,
-            @AuthenticationPrincipal MyUserDetails userDetails) {
+            @AuthenticationPrincipal AuthenticatedUser user) {
         FriendshipStatusDTO statusDTO = friendshipService.getFriendshipStatus(currentUserId, targetUserId);
 
         if (statusDTO == null) {
@@ -8,7 +8,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RestController;
 import se.jensen.johanna.socialapp.dto.LikeResponse;
-import se.jensen.johanna.socialapp.security.MyUserDetails;
+import se.jensen.johanna.socialapp.security.AuthenticatedUser;
 import se.jensen.johanna.socialapp.service.LikeService;
 
 @PreAuthorize("isAuthenticated()")
@@ -21,19 +21,19 @@ public class LikeController {
     @PostMapping("/posts/{postId}/likes")
     public ResponseEntity<LikeResponse> togglePostLike(
             @PathVariable Long postId,
-            @AuthenticationPrincipal MyUserDetails userDetails
+            @AuthenticationPrincipal AuthenticatedUser user
     ) {
 
-        return ResponseEntity.ok(likeService.togglePostLike(postId, userDetails.getUserId()));
+        return ResponseEntity.ok(likeService.togglePostLike(postId, user.userId()));
 
     }
 
     @PostMapping("/comments/{commentId}/likes")
     public ResponseEntity<LikeResponse> toggleCommentLike(
             @PathVariable Long commentId,
-            @AuthenticationPrincipal MyUserDetails userDetails
+            @AuthenticationPrincipal AuthenticatedUser user
     ) {
-        return ResponseEntity.ok(likeService.toggleCommentLike(commentId, userDetails.getUserId()));
+        return ResponseEntity.ok(likeService.toggleCommentLike(commentId, user.userId()));
     }
 
 
@@ -11,7 +11,7 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import se.jensen.johanna.socialapp.dto.*;
-import se.jensen.johanna.socialapp.security.MyUserDetails;
+import se.jensen.johanna.socialapp.security.AuthenticatedUser;
 import se.jensen.johanna.socialapp.service.FriendshipService;
 import se.jensen.johanna.socialapp.service.PostService;
 import se.jensen.johanna.socialapp.service.UserService;
@@ -34,8 +34,8 @@ public class MyController {
 
 
     @GetMapping
-    public ResponseEntity<MyDTO> getMe(@AuthenticationPrincipal MyUserDetails userDetails) {
-        return ResponseEntity.ok(userService.getAuthenticatedUser(userDetails.getUserId()));
+    public ResponseEntity<MyDTO> getMe(@AuthenticationPrincipal AuthenticatedUser user) {
+        return ResponseEntity.ok(userService.getAuthenticatedUser(user.userId()));
     }
 
     /**
@@ -47,8 +47,8 @@ public class MyController {
     @GetMapping("/posts")
     public ResponseEntity<Page<UserPostDTO>> getMyPosts(
             @ParameterObject @PageableDefault(size = 10, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable,
-            @AuthenticationPrincipal MyUserDetails userDetails) {
-        return ResponseEntity.ok(postService.getPostsForUser(userDetails.getUserId(), pageable));
+            @AuthenticationPrincipal AuthenticatedUser user) {
+        return ResponseEntity.ok(postService.getPostsForUser(user.userId(), pageable));
 
     }
 
@@ -60,9 +60,9 @@ public class MyController {
      * @return {@link MyFriendRequest}
      */
     @GetMapping("/friend-request")
-    public ResponseEntity<List<MyFriendRequest>> getFriendRequests(@AuthenticationPrincipal MyUserDetails userDetails) {
+    public ResponseEntity<List<MyFriendRequest>> getFriendRequests(@AuthenticationPrincipal AuthenticatedUser user) {
 
-        return ResponseEntity.ok(friendshipService.getFriendRequestsForUser(userDetails.getUserId()));
+        return ResponseEntity.ok(friendshipService.getFriendRequestsForUser(user.userId()));
     }
 
 
@@ -72,9 +72,9 @@ public class MyController {
      * @return a {@link ResponseEntity} containing a list of {@link UserListDTO} representing the user's friends
      */
     @GetMapping("/friends")
-    public ResponseEntity<List<UserListDTO>> getMyFriends(@AuthenticationPrincipal MyUserDetails userDetails) {
+    public ResponseEntity<List<UserListDTO>> getMyFriends(@AuthenticationPrincipal AuthenticatedUser user) {
 
-        return ResponseEntity.ok(friendshipService.getFriendsForUser(userDetails.getUserId()));
+        return ResponseEntity.ok(friendshipService.getFriendsForUser(user.userId()));
     }
 
     /**
@@ -84,10 +84,10 @@ public class MyController {
      * @return a {@link ResponseEntity} containing the {@link UpdateUserResponse} with updated user details
      */
     @PatchMapping
-    public ResponseEntity<UpdateUserResponse> updateMe(@AuthenticationPrincipal MyUserDetails userDetails,
+    public ResponseEntity<UpdateUserResponse> updateMe(@AuthenticationPrincipal AuthenticatedUser user,
                                                        @RequestBody UpdateUserRequest userRequest) {
 
-        return ResponseEntity.ok(userService.updateUser(userRequest, userDetails.getUserId()));
+        return ResponseEntity.ok(userService.updateUser(userRequest, user.userId()));
     }
 
     /**
@@ -96,10 +96,10 @@ public class MyController {
      * @return a {@link ResponseEntity} with status 204 (No Content) upon successful deletion
      */
     @DeleteMapping
-    public ResponseEntity<Void> deleteMe(@AuthenticationPrincipal MyUserDetails userDetails) {
+    public ResponseEntity<Void> deleteMe(@AuthenticationPrincipal AuthenticatedUser user) {
 
 
-        userService.deleteUser(userDetails.getUserId());
+        userService.deleteUser(user.userId());
 
         return ResponseEntity.noContent().build();
 
@@ -8,16 +8,18 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import se.jensen.johanna.socialapp.dto.PostDTO;
 import se.jensen.johanna.socialapp.dto.PostRequest;
 import se.jensen.johanna.socialapp.dto.PostResponseDTO;
 import se.jensen.johanna.socialapp.dto.UpdatePostResponse;
-import se.jensen.johanna.socialapp.security.MyUserDetails;
+import se.jensen.johanna.socialapp.security.AuthenticatedUser;
 import se.jensen.johanna.socialapp.service.PostService;
 
 /**
@@ -51,14 +53,24 @@ public class PostController {
 
     /**
      * Retrieves a specific post by its ID.
+     * Answers 304 Not Modified without loading the post when {@code If-None-Match} matches its ETag.
+     * A cached post older than the ETag is reloaded, so the body always matches the tag it is sent with.
      *
      * @param postId The unique identifier of the post to fetch.
      * @return A ResponseEntity containing the {@link PostDTO}.
      */
 
     @GetMapping("/{postId}")
-    public ResponseEntity<PostDTO> getPost(@PathVariable Long postId) {
-        return ResponseEntity.ok(postService.getPost(postId));
+    public ResponseEntity<PostDTO> getPost(@PathVariable Long postId, WebRequest webRequest) {
+        String eTag = postService.getPostETag(postId);
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+        PostDTO postDTO = postService.getPost(postId);
+        if (!eTag.equals(postDTO.version().eTag())) {
+            postDTO = postService.reloadPost(postId);
+        }
+        return ResponseEntity.ok().eTag(eTag).cacheControl(CacheControl.noCache().cachePrivate()).body(postDTO);
     }
 
     /**
@@ -71,10 +83,10 @@ public class PostController {
     @PreAuthorize("isAuthenticated()")
     @PostMapping
     public ResponseEntity<PostResponseDTO> post(
-            @AuthenticationPrincipal MyUserDetails userDetails,
+            @AuthenticationPrincipal AuthenticatedUser user,
             @RequestBody @Valid PostRequest postRequest) {
 
-        return ResponseEntity.status(HttpStatus.CREATED).body(postService.addPost(postRequest, userDetails.getUserId()));
+        return ResponseEntity.status(HttpStatus.CREATED).body(postService.addPost(postRequest, user.userId()));
 
     }
 
@@ -89,12 +101,12 @@ public class PostController {
     @PreAuthorize("isAuthenticated()")
     @PatchMapping("/{postId}")
     public ResponseEntity<UpdatePostResponse> editPost(
-            @AuthenticationPrincipal MyUserDetails userDetails,
+            @AuthenticationPrincipal AuthenticatedUser user,
             @PathVariable Long postId,
             @RequestBody @Valid PostRequest postRequest) {
 
 
-        return ResponseEntity.ok(postService.updatePost(postRequest, postId, userDetails.getUserId()));
+        return ResponseEntity.ok(postService.updatePost(postRequest, postId, user.userId()));
 
     }
 
@@ -107,10 +119,10 @@ public class PostController {
      */
     @DeleteMapping("/{postId}")
     public ResponseEntity<Void> deletePost(
-            @AuthenticationPrincipal MyUserDetails userDetails,
+            @AuthenticationPrincipal AuthenticatedUser user,
             @PathVariable Long postId) {
 
-        postService.deletePost(postId, userDetails.getUserId());
+        postService.deletePost(postId, user.userId());
 
         return ResponseEntity.noContent().build();
     }
@@ -6,8 +6,10 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import se.jensen.johanna.socialapp.dto.UserDTO;
 import se.jensen.johanna.socialapp.dto.UserListDTO;
 import se.jensen.johanna.socialapp.dto.UserPostDTO;
@@ -65,15 +67,24 @@ public class UserController {
 
     /**
      * Retrieves detailed profile information for a specific user.
+     * Answers 304 Not Modified without loading the profile when {@code If-None-Match} matches its ETag.
+     * A cached profile older than the ETag is reloaded, so the body always matches the tag it is sent with.
      *
      * @param userId the ID of the user to retrieve
      * @return the UserDTO containing user details
      */
 
     @GetMapping("/{userId}")
-    public ResponseEntity<UserDTO> getUser(@PathVariable Long userId) {
+    public ResponseEntity<UserDTO> getUser(@PathVariable Long userId, WebRequest webRequest) {
+        String eTag = userService.getUserETag(userId);
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
         UserDTO userDTO = userService.getUser(userId);
-        return ResponseEntity.ok(userDTO);
+        if (!eTag.equals(userDTO.version().eTag())) {
+            userDTO = userService.reloadUser(userId);
+        }
+        return ResponseEntity.ok().eTag(eTag).cacheControl(CacheControl.noCache().cachePrivate()).body(userDTO);
 
     }
 
@@ -10,6 +10,8 @@ import java.util.List;
  * @param text
  * @param createdAt
  * @param updatedAt
+ * @param likeCount number of likes on the comment
+ * @param likedByMe true if the viewing user has liked the comment
  * @param replies
  */
 public record CommentDTO(
@@ -19,6 +21,8 @@ public record CommentDTO(
         String text,
         LocalDateTime createdAt,
         LocalDateTime updatedAt,
+        Integer likeCount,
+        Boolean likedByMe,
         List<CommentDTO> replies
 ) {
 }
@@ -0,0 +1,15 @@
+package se.jensen.johanna.socialapp.dto;
+
+/**
+ * Aggregated like information for one comment, as returned by the grouped like query.
+ *
+ * @param commentId     ID of the comment
+ * @param likeCount     number of likes on the comment
+ * @param likedByViewer number of likes by the viewing user, 0 or 1
+ */
+public record CommentLikeCount(
+        Long commentId,
+        Long likeCount,
+        Long likedByViewer
+) {
+}
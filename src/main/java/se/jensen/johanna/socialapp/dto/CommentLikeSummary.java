@@ -0,0 +1,47 @@
+package se.jensen.johanna.socialapp.dto;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Like information for all comments on a page, keyed by comment ID.
+ * Used as mapping context so a whole page of comments can be rendered
+ * from one grouped query instead of one count per comment.
+ *
+ * @param counts like counts keyed by comment ID, comments without likes are absent
+ */
+public record CommentLikeSummary(
+        Map<Long, CommentLikeCount> counts
+) {
+    public static final CommentLikeSummary EMPTY = new CommentLikeSummary(Map.of());
+
+    public static CommentLikeSummary of(Collection<CommentLikeCount> counts) {
+        return new CommentLikeSummary(counts.stream()
+                .collect(Collectors.toMap(CommentLikeCount::commentId, Function.identity())));
+    }
+
+    /**
+     * Replaces the viewer part of the counts, for counts that were loaded without a viewer.
+     *
+     * @param likedCommentIds IDs of the comments liked by the viewer
+     * @return a summary with the same counts and likedByMe set from the given IDs
+     */
+    public CommentLikeSummary withLikedByViewer(Set<Long> likedCommentIds) {
+        return new CommentLikeSummary(counts.values().stream()
+                .collect(Collectors.toMap(CommentLikeCount::commentId, count -> new CommentLikeCount(
+                        count.commentId(), count.likeCount(), likedCommentIds.contains(count.commentId()) ? 1L : 0L))));
+    }
+
+    public Integer likeCount(Long commentId) {
+        CommentLikeCount count = counts.get(commentId);
+        return count == null ? 0 : count.likeCount().intValue();
+    }
+
+    public Boolean likedByMe(Long commentId) {
+        CommentLikeCount count = counts.get(commentId);
+        return count != null && count.likedByViewer() > 0;
+    }
+}
@@ -0,0 +1,26 @@
+package se.jensen.johanna.socialapp.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Flat projection of a comment with exactly the columns needed to render a {@link CommentDTO}.
+ * Replies and like information are attached when the page is assembled.
+ *
+ * @param commentId ID of the comment
+ * @param parentId  ID of the parent comment, null for main comments
+ * @param userId    ID of the author
+ * @param username  username of the author
+ * @param text      content of the comment
+ * @param createdAt creation time
+ * @param updatedAt last edit time
+ */
+public record CommentRow(
+        Long commentId,
+        Long parentId,
+        Long userId,
+        String username,
+        String text,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt
+) {
+}
@@ -0,0 +1,25 @@
+package se.jensen.johanna.socialapp.dto;
+
+import se.jensen.johanna.socialapp.util.ETagUtils;
+
+/**
+ * Version of all comments on a post, used as entity tag for its comment and reply pages.
+ * The version is bumped in the transaction of every added, edited or removed comment or comment like.
+ *
+ * @param postId  ID of the post
+ * @param version the post's comments version, 0 until the first write
+ */
+public record CommentsVersion(
+        Long postId,
+        long version
+) {
+    /**
+     * Pages show likedByMe, so the tag includes the viewer.
+     *
+     * @param viewerId ID of the viewing user, or null
+     * @return the entity tag value
+     */
+    public String eTag(Long viewerId) {
+        return ETagUtils.of("comments", postId, version, viewerId);
+    }
+}
@@ -0,0 +1,18 @@
+package se.jensen.johanna.socialapp.dto;
+
+import java.util.List;
+
+/**
+ * A slice of results fetched with keyset (cursor) pagination.
+ *
+ * @param content    the items on this slice
+ * @param nextCursor opaque cursor to pass back to fetch the next slice, null when there is none
+ * @param hasNext    true if there are more items after this slice
+ * @param <T>        type of the items
+ */
+public record CursorPage<T>(
+        List<T> content,
+        String nextCursor,
+        boolean hasNext
+) {
+}
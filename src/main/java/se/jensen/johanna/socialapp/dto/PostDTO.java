@@ -1,7 +1,12 @@
 package se.jensen.johanna.socialapp.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.time.LocalDateTime;
 
+/**
+ * @param authorUpdatedAt when the author's profile was last updated, kept so a cached post knows its own version
+ */
 public record PostDTO(
         Long postId,
         Long userId,
@@ -9,6 +14,13 @@ public record PostDTO(
         String profileImagePath,
         String text,
         LocalDateTime createdAt,
-        LocalDateTime updatedAt
+        LocalDateTime updatedAt,
+        @JsonIgnore LocalDateTime authorUpdatedAt
 ) {
+    /**
+     * @return the version this post was loaded at
+     */
+    public PostVersion version() {
+        return new PostVersion(postId, updatedAt != null ? updatedAt : createdAt, authorUpdatedAt);
+    }
 }
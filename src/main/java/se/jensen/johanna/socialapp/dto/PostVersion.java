@@ -0,0 +1,22 @@
+package se.jensen.johanna.socialapp.dto;
+
+import se.jensen.johanna.socialapp.util.ETagUtils;
+
+import java.time.LocalDateTime;
+
+/**
+ * The columns a {@link PostDTO} changes with, used as its entity tag.
+ *
+ * @param postId           ID of the post
+ * @param modifiedAt       when the post was last edited, or created if never edited
+ * @param authorModifiedAt when the author's profile was last updated, the DTO embeds username and image
+ */
+public record PostVersion(
+        Long postId,
+        LocalDateTime modifiedAt,
+        LocalDateTime authorModifiedAt
+) {
+    public String eTag() {
+        return ETagUtils.of("post", postId, modifiedAt, authorModifiedAt);
+    }
+}
@@ -1,9 +1,23 @@
 package se.jensen.johanna.socialapp.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.LocalDateTime;
+
+/**
+ * @param updatedAt when the profile was last updated, kept so a cached profile knows its own version
+ */
 public record UserDTO(
         Long userId,
         String profileImagePath,
         String username,
-        String bio
+        String bio,
+        @JsonIgnore LocalDateTime updatedAt
 ) {
+    /**
+     * @return the version this profile was loaded at
+     */
+    public UserVersion version() {
+        return new UserVersion(userId, updatedAt);
+    }
 }
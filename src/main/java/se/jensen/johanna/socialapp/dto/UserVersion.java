@@ -0,0 +1,20 @@
+package se.jensen.johanna.socialapp.dto;
+
+import se.jensen.johanna.socialapp.util.ETagUtils;
+
+import java.time.LocalDateTime;
+
+/**
+ * The columns a {@link UserDTO} changes with, used as its entity tag.
+ *
+ * @param userId    ID of the user
+ * @param updatedAt when the profile was last updated, null if never
+ */
+public record UserVersion(
+        Long userId,
+        LocalDateTime updatedAt
+) {
+    public String eTag() {
+        return ETagUtils.of("user", userId, updatedAt);
+    }
+}
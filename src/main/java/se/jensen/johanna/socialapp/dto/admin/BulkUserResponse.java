@@ -0,0 +1,10 @@
+package se.jensen.johanna.socialapp.dto.admin;
+
+import java.util.List;
+
+public record BulkUserResponse(
+        int created,
+        int rejected,
+        List<BulkUserResult> results
+) {
+}
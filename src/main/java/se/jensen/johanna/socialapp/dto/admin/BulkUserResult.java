@@ -0,0 +1,32 @@
+package se.jensen.johanna.socialapp.dto.admin;
+
+/**
+ * Outcome for one row of a bulk user upload.
+ *
+ * @param row      1-based position of the row in the upload
+ * @param userId   ID of the created user, only set when {@code status} is CREATED
+ * @param message  why the row was not created
+ */
+public record BulkUserResult(
+        int row,
+        String email,
+        String username,
+        Status status,
+        Long userId,
+        String message
+) {
+    public enum Status {
+        CREATED,
+        INVALID,
+        DUPLICATE,
+        FAILED
+    }
+
+    public static BulkUserResult created(int row, String email, String username, Long userId) {
+        return new BulkUserResult(row, email, username, Status.CREATED, userId, null);
+    }
+
+    public static BulkUserResult rejected(int row, String email, String username, Status status, String message) {
+        return new BulkUserResult(row, email, username, status, null, message);
+    }
+}
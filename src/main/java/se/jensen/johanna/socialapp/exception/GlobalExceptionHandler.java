@@ -2,9 +2,12 @@ package se.jensen.johanna.socialapp.exception;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -99,6 +102,38 @@ public class GlobalExceptionHandler {
                 HttpStatus.UNAUTHORIZED, "JWT_AUTHENTICATION", e.getMessage(), request);
     }
 
+    @ExceptionHandler(InternalAuthenticationServiceException.class)
+    public ResponseEntity<ErrorResponse> handleInternalAuthentication(InternalAuthenticationServiceException e, WebRequest request) {
+        // the dummy password check for an unknown username wraps a saturated hasher
+        if (e.getCause() instanceof ServiceBusyException busy) {
+            return handleServiceBusy(busy, request);
+        }
+        // the user could not be loaded, not a credentials problem
+        return handleGlobalException(e, request);
+    }
+
+    @ExceptionHandler(AuthenticationException.class)
+    public ResponseEntity<ErrorResponse> handleAuthentication(AuthenticationException e, WebRequest request) {
+        return buildErrorResponse(
+                HttpStatus.UNAUTHORIZED, "BAD_CREDENTIALS", "Invalid username or password.", request);
+    }
+
+    /**
+     * Handles requests shed because a bounded resource (e.g. password hashing) is saturated.
+     *
+     * @param e       the ServiceBusyException
+     * @param request the current web request
+     * @return a ResponseEntity with SERVICE_UNAVAILABLE status and a Retry-After header
+     */
+    @ExceptionHandler(ServiceBusyException.class)
+    public ResponseEntity<ErrorResponse> handleServiceBusy(ServiceBusyException e, WebRequest request) {
+        ResponseEntity<ErrorResponse> response = buildErrorResponse(
+                HttpStatus.SERVICE_UNAVAILABLE, "SERVICE_BUSY", e.getMessage(), request);
+        return ResponseEntity.status(response.getStatusCode())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(response.getBody());
+    }
+
     @ExceptionHandler(NotUniqueException.class)
     public ResponseEntity<ErrorResponse> handleNotUnique(NotUniqueException e, WebRequest request) {
         return buildErrorResponse(HttpStatus.CONFLICT, "NOT_UNIQUE", e.getMessage(), request);
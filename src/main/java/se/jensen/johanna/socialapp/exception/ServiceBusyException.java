@@ -0,0 +1,17 @@
+package se.jensen.johanna.socialapp.exception;
+
+import lombok.Getter;
+
+/**
+ * Thrown when a bounded resource is saturated and the request is shed instead of queued.
+ * Answered with 503 and a Retry-After header.
+ */
+@Getter
+public class ServiceBusyException extends RuntimeException {
+    private final int retryAfterSeconds;
+
+    public ServiceBusyException(String message, int retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
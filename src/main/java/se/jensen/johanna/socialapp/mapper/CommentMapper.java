@@ -4,6 +4,8 @@ import org.mapstruct.*;
 import se.jensen.johanna.socialapp.dto.*;
 import se.jensen.johanna.socialapp.model.Comment;
 
+import java.util.List;
+
 /**
  * mapper-class for comments
  */
@@ -11,6 +13,9 @@ import se.jensen.johanna.socialapp.model.Comment;
 public interface CommentMapper {
 
     @Mapping(target = "updatedAt", ignore = true)
+    @Mapping(target = "likeCount", ignore = true)
+    @Mapping(target = "replyCount", ignore = true)
+    @Mapping(target = "score", ignore = true)
     Comment toComment(CommentRequest commentRequest);
 
     @Mapping(target = "userId", source = "user.userId")
@@ -23,9 +28,9 @@ public interface CommentMapper {
     @Mapping(target = "username", source = "user.username")
     ReplyCommentResponse toReplyCommentResponse(Comment comment);
 
-    @Mapping(target = "userId", source = "user.userId")
-    @Mapping(target = "username", source = "user.username")
-    CommentDTO toCommentDTO(Comment comment);
+    @Mapping(target = "likeCount", expression = "java(likes.likeCount(row.commentId()))")
+    @Mapping(target = "likedByMe", expression = "java(likes.likedByMe(row.commentId()))")
+    CommentDTO toCommentDTO(CommentRow row, List<CommentDTO> replies, @Context CommentLikeSummary likes);
 
     @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
     @Mapping(target = "updatedAt", expression = "java(java.time.LocalDateTime.now())")
@@ -33,6 +38,9 @@ public interface CommentMapper {
     @Mapping(target = "user", ignore = true)
     @Mapping(target = "post", ignore = true)
     @Mapping(target = "parent", ignore = true)
+    @Mapping(target = "likeCount", ignore = true)
+    @Mapping(target = "replyCount", ignore = true)
+    @Mapping(target = "score", ignore = true)
     void updateComment(CommentRequest commentRequest, @MappingTarget Comment comment);
 
     UpdateCommentResponse toUpdateCommentResponse(Comment comment);
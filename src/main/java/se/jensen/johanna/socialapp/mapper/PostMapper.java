@@ -15,13 +15,6 @@ public interface PostMapper {
     @Mapping(target = "username", source = "user.username")
     PostResponseDTO toPostResponseDTO(Post post);
 
-    UserPostDTO toUserPostDTO(Post post);
-
-    @Mapping(target = "userId", source = "user.userId")
-    @Mapping(target = "username", source = "user.username")
-    @Mapping(target = "profileImagePath", source = "user.profileImagePath")
-    PostDTO toPostDTO(Post post);
-
     /**
      * @param postRequest maps post from postrequest
      * @return post
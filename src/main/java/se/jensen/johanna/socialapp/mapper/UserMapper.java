@@ -11,13 +11,12 @@ import se.jensen.johanna.socialapp.model.User;
 @Mapper(componentModel = "spring", uses = {PostMapper.class})
 public interface UserMapper {
 
-    UserDTO toUserDTO(User user);
-
     UserListDTO toUserListDTO(User user);
 
 
     @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
     @Mapping(target = "username", ignore = true)
+    @Mapping(target = "updatedAt", ignore = true)
     void updateUser(UpdateUserRequest userRequest, @MappingTarget User user);
 
     MyDTO toMyDTO(User user);
@@ -26,8 +25,7 @@ public interface UserMapper {
 
     @Mapping(target = "role", source = "role")
     @Mapping(target = "password", source = "hashedPw")
+    @Mapping(target = "updatedAt", ignore = true)
     User toUser(RegisterUserRequest registerUserRequest, String hashedPw, Role role);
 
-    AdminUserDTO toAdminUserDTO(User user);
-
 }
@@ -4,9 +4,11 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -14,10 +16,25 @@ import java.util.List;
 @NoArgsConstructor
 @Getter
 @Setter
-@Table(name = "comments")
+@Table(name = "comments", indexes = {
+        @Index(name = "idx_comments_post_parent_created", columnList = "post_id, parent_id, created_at"),
+        @Index(name = "idx_comments_parent_created", columnList = "parent_id, created_at"),
+        @Index(name = "idx_comments_post_parent_score", columnList = "post_id, parent_id, score, comment_id")
+})
 public class Comment {
+    /**
+     * Seconds of age that weigh as much as e-times more engagement in the ranking score.
+     */
+    public static final double SCORE_DECAY_SECONDS = 45000;
+
+    /**
+     * How much a reply weighs compared to a like in the ranking score.
+     */
+    public static final int REPLY_WEIGHT = 2;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "comments_seq")
+    @SequenceGenerator(name = "comments_seq", sequenceName = "comments_seq", allocationSize = 50)
     private Long commentId;
 
 
@@ -47,6 +64,35 @@ public class Comment {
     @OrderBy("createdAt ASC")
     private List<Comment> replies = new ArrayList<>();
 
+    /**
+     * Denormalized counters and ranking score for "top" sorting.
+     * Kept up to date incrementally by {@code CommentRepository.adjustLikeCount}
+     * and {@code CommentRepository.adjustReplyCount}.
+     */
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private int likeCount;
+
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private int replyCount;
+
+    /**
+     * Ranking score: creation time in decay units plus ln(1 + likes + 2 * replies).
+     * Since the age part only depends on createdAt, newer comments rank higher
+     * without the score ever having to be recomputed as time passes.
+     */
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private double score;
+
+    @PrePersist
+    void initScore() {
+        LocalDateTime created = createdAt != null ? createdAt : LocalDateTime.now();
+        score = created.toEpochSecond(ZoneOffset.UTC) / SCORE_DECAY_SECONDS
+                + Math.log(1 + likeCount + REPLY_WEIGHT * replyCount);
+    }
+
     /**
      * Sets parent and post for reply comment
      *
@@ -8,7 +8,8 @@ import lombok.Setter;
 import java.time.Instant;
 
 /**
- * Represents refreshtoken-cookie for token rotation
+ * Represents refreshtoken-cookie for token rotation.
+ * Only the SHA-256 hash of the token is stored, the token itself is only known to the client.
  */
 @Entity
 @Table(name = "refresh_tokens")
@@ -17,14 +18,15 @@ import java.time.Instant;
 @Setter
 public class RefreshToken {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "refresh_tokens_seq")
+    @SequenceGenerator(name = "refresh_tokens_seq", sequenceName = "refresh_tokens_seq", allocationSize = 50)
     private Long refreshTokenId;
 
-    @Column(nullable = false, unique = true)
-    private String token;
+    @Column(nullable = false, unique = true, length = 64)
+    private String tokenHash;
 
-    @OneToOne
-    @JoinColumn(name = "user_id", referencedColumnName = "userId")
+    @OneToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "user_id", referencedColumnName = "userId", nullable = false, unique = true)
     private User user;
 
     @Column(nullable = false)
@@ -1,17 +1,59 @@
 package se.jensen.johanna.socialapp.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import se.jensen.johanna.socialapp.dto.CommentLikeCount;
 import se.jensen.johanna.socialapp.model.CommentLike;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
 @Repository
 public interface CommentLikeRepository extends JpaRepository<CommentLike, Long> {
 
     @Query("SELECT COUNT(cl)>0 FROM CommentLike cl WHERE cl.comment.commentId=:commentId AND cl.user.userId=:userId")
     Boolean existsBetween(Long commentId, Long userId);
 
-    void deleteCommentLikeByComment_CommentIdAndUser_UserId(Long commentId, Long userId);
+    /**
+     * Removes a user's like of a comment.
+     *
+     * @param commentId ID of the comment
+     * @param userId    ID of the user
+     * @return number of removed likes, 0 if there was none, e.g. after a concurrent unlike
+     */
+    @Modifying
+    @Query("DELETE FROM CommentLike cl WHERE cl.comment.commentId = :commentId AND cl.user.userId = :userId")
+    int deleteBetween(@Param("commentId") Long commentId, @Param("userId") Long userId);
 
     Integer countByComment_CommentId(Long commentId);
+
+    /**
+     * Counts likes for a set of comments in one grouped query,
+     * and whether the given user is one of the likers.
+     *
+     * @param commentIds IDs of the comments on the page
+     * @param userId     ID of the viewing user
+     * @return one {@link CommentLikeCount} per comment that has likes
+     */
+    @Query("SELECT new se.jensen.johanna.socialapp.dto.CommentLikeCount(cl.comment.commentId, COUNT(cl), " +
+            "SUM(CASE WHEN cl.user.userId = :userId THEN 1 ELSE 0 END)) " +
+            "FROM CommentLike cl WHERE cl.comment.commentId IN :commentIds GROUP BY cl.comment.commentId")
+    List<CommentLikeCount> countLikesForComments(@Param("commentIds") Collection<Long> commentIds,
+                                                 @Param("userId") Long userId);
+
+    /**
+     * Finds which of the given comments a user has liked.
+     *
+     * @param commentIds IDs of the comments on the page
+     * @param userId     ID of the viewing user
+     * @return IDs of the comments liked by the user
+     */
+    @Query("SELECT cl.comment.commentId FROM CommentLike cl " +
+            "WHERE cl.comment.commentId IN :commentIds AND cl.user.userId = :userId")
+    Set<Long> findLikedCommentIds(@Param("commentIds") Collection<Long> commentIds,
+                                  @Param("userId") Long userId);
 }
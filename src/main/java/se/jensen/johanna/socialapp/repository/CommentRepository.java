@@ -1,33 +1,223 @@
 package se.jensen.johanna.socialapp.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import se.jensen.johanna.socialapp.dto.CommentRow;
 import se.jensen.johanna.socialapp.model.Comment;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 /**
  * Repository interface for {@link Comment}
  * provides standard CRUD operations through JpaRepository
+ * Listing queries select {@link CommentRow} projections with the author joined in,
+ * so read endpoints never hydrate managed Comment entities.
  */
 @Repository
 public interface CommentRepository extends JpaRepository<Comment, Long> {
 
 
+    String COMMENT_ROW = "SELECT new se.jensen.johanna.socialapp.dto.CommentRow(" +
+            "c.commentId, c.parent.commentId, u.userId, u.username, c.text, c.createdAt, c.updatedAt) " +
+            "FROM Comment c JOIN c.user u ";
+
     /**
      * Retrieves all replies for a specific comment
      *
      * @param parentId ID of the parent-comment
      * @return List of paginated child-comments in ascending order
      */
-    Page<Comment> findByParent_CommentIdOrderByCreatedAtAsc(Long parentId, Pageable pageable);
+    @Query(value = COMMENT_ROW + "WHERE c.parent.commentId = :parentId ORDER BY c.createdAt ASC",
+            countQuery = "SELECT COUNT(c) FROM Comment c WHERE c.parent.commentId = :parentId")
+    Page<CommentRow> findReplyRows(@Param("parentId") Long parentId, Pageable pageable);
 
     /**
      * Retrieves all main comments without a parent-id for a specific post
      *
      * @param postId   id of post to fetch comments for
      * @param pageable Returns paginated list
-     * @return {@link Comment}
+     * @return {@link CommentRow}
+     */
+    @Query(value = COMMENT_ROW + "WHERE c.post.postId = :postId AND c.parent IS NULL",
+            countQuery = "SELECT COUNT(c) FROM Comment c WHERE c.post.postId = :postId AND c.parent IS NULL")
+    Page<CommentRow> findMainCommentRows(@Param("postId") Long postId, Pageable pageable);
+
+    /**
+     * Retrieves the replies to a set of comments in one query, used to build reply trees level by level.
+     *
+     * @param parentIds IDs of the parent-comments
+     * @return replies to any of the parents, oldest first
+     */
+    @Query(COMMENT_ROW + "WHERE c.parent.commentId IN :parentIds ORDER BY c.createdAt ASC, c.commentId ASC")
+    List<CommentRow> findReplyRowsByParentIds(@Param("parentIds") Collection<Long> parentIds);
+
+    /* ********************* KEYSET PAGINATION ********************* */
+
+    /**
+     * Retrieves the newest main comments for a post, first slice of keyset pagination.
+     * Backed by the (post_id, parent_id, created_at) index.
+     *
+     * @param postId id of post to fetch comments for
+     * @param limit  max number of comments to return
+     * @return main comments, newest first
+     */
+    @Query(COMMENT_ROW + "WHERE c.post.postId = :postId AND c.parent IS NULL " +
+            "ORDER BY c.createdAt DESC, c.commentId DESC")
+    List<CommentRow> findMainCommentsFirst(@Param("postId") Long postId, Limit limit);
+
+    /**
+     * Retrieves main comments for a post that are older than the given cursor position.
+     * The redundant bound on createdAt lets the index seek to the cursor instead of filtering
+     * every main comment of the post.
+     *
+     * @param postId    id of post to fetch comments for
+     * @param createdAt creation time of the last comment on the previous slice
+     * @param commentId id of the last comment on the previous slice
+     * @param limit     max number of comments to return
+     * @return main comments after the cursor, newest first
+     */
+    @Query(COMMENT_ROW + "WHERE c.post.postId = :postId AND c.parent IS NULL " +
+            "AND c.createdAt <= :createdAt AND (c.createdAt < :createdAt OR c.commentId < :commentId) " +
+            "ORDER BY c.createdAt DESC, c.commentId DESC")
+    List<CommentRow> findMainCommentsBefore(@Param("postId") Long postId,
+                                            @Param("createdAt") LocalDateTime createdAt,
+                                            @Param("commentId") Long commentId,
+                                            Limit limit);
+
+    /**
+     * Retrieves the oldest replies to a comment, first slice of keyset pagination.
+     * Backed by the (parent_id, created_at) index.
+     *
+     * @param parentId ID of the parent-comment
+     * @param limit    max number of replies to return
+     * @return replies, oldest first
+     */
+    @Query(COMMENT_ROW + "WHERE c.parent.commentId = :parentId " +
+            "ORDER BY c.createdAt ASC, c.commentId ASC")
+    List<CommentRow> findRepliesFirst(@Param("parentId") Long parentId, Limit limit);
+
+    /**
+     * Retrieves replies to a comment that are newer than the given cursor position,
+     * bounded on createdAt like {@link #findMainCommentsBefore}.
+     *
+     * @param parentId  ID of the parent-comment
+     * @param createdAt creation time of the last reply on the previous slice
+     * @param commentId id of the last reply on the previous slice
+     * @param limit     max number of replies to return
+     * @return replies after the cursor, oldest first
+     */
+    @Query(COMMENT_ROW + "WHERE c.parent.commentId = :parentId " +
+            "AND c.createdAt >= :createdAt AND (c.createdAt > :createdAt OR c.commentId > :commentId) " +
+            "ORDER BY c.createdAt ASC, c.commentId ASC")
+    List<CommentRow> findRepliesAfter(@Param("parentId") Long parentId,
+                                      @Param("createdAt") LocalDateTime createdAt,
+                                      @Param("commentId") Long commentId,
+                                      Limit limit);
+
+    /**
+     * Reads the version of all comments and comment likes on a post from its own row,
+     * to answer conditional requests for comment pages without loading them.
+     *
+     * @param postId ID of the post
+     * @return the post's comments version, or empty if the post does not exist
+     */
+    @Query(value = "SELECT comments_version FROM posts WHERE post_id = :postId", nativeQuery = true)
+    Optional<Long> findCommentsVersion(@Param("postId") Long postId);
+
+    /**
+     * Finds the post a comment belongs to.
+     *
+     * @param commentId ID of the comment
+     * @return ID of the post, or empty if the comment does not exist
+     */
+    @Query("SELECT c.post.postId FROM Comment c WHERE c.commentId = :commentId")
+    Optional<Long> findPostIdByCommentId(@Param("commentId") Long commentId);
+
+    /* ********************* RANKING COUNTERS ********************* */
+
+    /**
+     * Atomically adjusts the like counter of a comment and moves its score by the
+     * difference in ln(1 + likes + 2 * replies), without reading the row first.
+     *
+     * @param commentId ID of the liked or unliked comment
+     * @param delta     +1 for a new like, -1 for a removed like
+     * @return number of updated rows
+     */
+    @Modifying
+    @Query("UPDATE Comment c SET c.likeCount = c.likeCount + :delta, " +
+            "c.score = c.score - ln(1 + c.likeCount + 2 * c.replyCount) " +
+            "+ ln(1 + c.likeCount + :delta + 2 * c.replyCount) " +
+            "WHERE c.commentId = :commentId")
+    int adjustLikeCount(@Param("commentId") Long commentId, @Param("delta") int delta);
+
+    /**
+     * Atomically adjusts the reply counter of a comment and moves its score accordingly.
+     *
+     * @param commentId ID of the parent comment
+     * @param delta     +1 for a new reply, -1 for a removed reply
+     * @return number of updated rows
+     */
+    @Modifying
+    @Query("UPDATE Comment c SET c.replyCount = c.replyCount + :delta, " +
+            "c.score = c.score - ln(1 + c.likeCount + 2 * c.replyCount) " +
+            "+ ln(1 + c.likeCount + 2 * (c.replyCount + :delta)) " +
+            "WHERE c.commentId = :commentId")
+    int adjustReplyCount(@Param("commentId") Long commentId, @Param("delta") int delta);
+
+    /* ********************* COMMENTS VERSION ********************* */
+
+    /**
+     * Atomically bumps the comments version of a post, in the transaction of the comment write.
+     * The column is not mapped on Post, and the query only touches the comments query space,
+     * so cached posts are kept.
+     *
+     * @param postId ID of the post whose comments changed
+     * @return number of updated rows
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "comments"))
+    @Query(value = "UPDATE posts SET comments_version = comments_version + 1 WHERE post_id = :postId",
+            nativeQuery = true)
+    int bumpCommentsVersion(@Param("postId") Long postId);
+
+    /**
+     * Atomically bumps the comments version of the post a comment belongs to, for like writes.
+     *
+     * @param commentId ID of the liked or unliked comment
+     * @return number of updated rows
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "comments"))
+    @Query(value = "UPDATE posts SET comments_version = comments_version + 1 " +
+            "WHERE post_id = (SELECT c.post_id FROM comments c WHERE c.comment_id = :commentId)",
+            nativeQuery = true)
+    int bumpCommentsVersionOfComment(@Param("commentId") Long commentId);
+
+    /**
+     * Atomically bumps the comments version of every post a user has commented on or liked a comment on,
+     * before the user and their comments are deleted.
+     *
+     * @param userId ID of the user being deleted
+     * @return number of updated rows
      */
-    Page<Comment> findByPost_postIdAndParentIsNull(Long postId, Pageable pageable);
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "comments"))
+    @Query(value = "UPDATE posts SET comments_version = comments_version + 1 " +
+            "WHERE post_id IN (SELECT c.post_id FROM comments c WHERE c.user_id = :userId) " +
+            "OR post_id IN (SELECT c.post_id FROM comment_likes cl JOIN comments c ON c.comment_id = cl.comment_id " +
+            "WHERE cl.user_id = :userId)",
+            nativeQuery = true)
+    int bumpCommentsVersionsOfUser(@Param("userId") Long userId);
 }
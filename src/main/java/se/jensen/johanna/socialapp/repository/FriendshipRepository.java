@@ -1,7 +1,10 @@
 package se.jensen.johanna.socialapp.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import se.jensen.johanna.socialapp.model.Friendship;
 import se.jensen.johanna.socialapp.model.FriendshipStatus;
@@ -21,7 +24,17 @@ public interface FriendshipRepository extends JpaRepository<Friendship, Long> {
     boolean existsFriendshipBetween(@Param("userId1") Long userId1, @Param("userId2") Long userId2);
 
     // Finds friendships for a user filtered by a specific status (e.g., only ACCEPTED)
-    @Query("SELECT f FROM Friendship f WHERE (f.sender.userId = :userId OR f.receiver.userId = :userId) AND f.status = :status")
+    // Both users are fetched in the same statement, the list is rendered from their names and images
+    // Read-only listing: entities are not snapshotted for dirty checking and never trigger an auto-flush
+    // Sender and receiver side are two index seeks, an OR across both columns would scan the table
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "COMMIT")
+    })
+    @Query("SELECT f FROM Friendship f JOIN FETCH f.sender JOIN FETCH f.receiver WHERE f.friendshipId IN (" +
+            "SELECT s.friendshipId FROM Friendship s WHERE s.sender.userId = :userId AND s.status = :status " +
+            "UNION ALL " +
+            "SELECT r.friendshipId FROM Friendship r WHERE r.receiver.userId = :userId AND r.status = :status)")
     List<Friendship> findFriendshipsByUserIdAndStatus(@Param("userId") Long userId, @Param("status") FriendshipStatus status);
 
 }
\ No newline at end of file
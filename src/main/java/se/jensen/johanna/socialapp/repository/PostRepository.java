@@ -3,9 +3,16 @@ package se.jensen.johanna.socialapp.repository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import se.jensen.johanna.socialapp.dto.PostDTO;
+import se.jensen.johanna.socialapp.dto.PostVersion;
+import se.jensen.johanna.socialapp.dto.UserPostDTO;
 import se.jensen.johanna.socialapp.model.Post;
 
+import java.util.Optional;
+
 /**
  * Repository interface for {@link Post} entities.
  * <p>
@@ -16,6 +23,50 @@ import se.jensen.johanna.socialapp.model.Post;
 @Repository
 public interface PostRepository extends JpaRepository<Post, Long> {
 
+    String POST_DTO = "SELECT new se.jensen.johanna.socialapp.dto.PostDTO(" +
+            "p.postId, u.userId, u.username, u.profileImagePath, p.text, p.createdAt, p.updatedAt, u.updatedAt) ";
+
+    /**
+     * Retrieves a page of posts as {@link PostDTO} projections with the author columns joined in,
+     * without loading managed entities into the persistence context.
+     *
+     * @param pageable the pagination and sorting information
+     * @return a {@link Page} of {@link PostDTO}
+     */
+    @Query(value = POST_DTO + "FROM Post p JOIN p.user u",
+            countQuery = "SELECT COUNT(p) FROM Post p")
+    Page<PostDTO> findAllPostDTOs(Pageable pageable);
+
+    /**
+     * Retrieves a single post as a {@link PostDTO} projection.
+     *
+     * @param postId the ID of the post
+     * @return the post, or empty if not found
+     */
+    @Query(POST_DTO + "FROM Post p JOIN p.user u WHERE p.postId = :postId")
+    Optional<PostDTO> findPostDTOById(@Param("postId") Long postId);
+
+    /**
+     * Retrieves only the version columns of a post and its author,
+     * to answer conditional requests without loading the post.
+     *
+     * @param postId the ID of the post
+     * @return the version, or empty if not found
+     */
+    @Query("SELECT new se.jensen.johanna.socialapp.dto.PostVersion(" +
+            "p.postId, COALESCE(p.updatedAt, p.createdAt), u.updatedAt) " +
+            "FROM Post p JOIN p.user u WHERE p.postId = :postId")
+    Optional<PostVersion> findPostVersion(@Param("postId") Long postId);
 
-    Page<Post> findByUser_UserId(Long userId, Pageable pageable);
-}
\ No newline at end of file
+    /**
+     * Retrieves the posts of a user as {@link UserPostDTO} projections.
+     *
+     * @param userId   the ID of the author
+     * @param pageable the pagination and sorting information
+     * @return a {@link Page} of {@link UserPostDTO}
+     */
+    @Query(value = "SELECT new se.jensen.johanna.socialapp.dto.UserPostDTO(p.postId, p.text, p.createdAt, p.updatedAt) " +
+            "FROM Post p WHERE p.user.userId = :userId",
+            countQuery = "SELECT COUNT(p) FROM Post p WHERE p.user.userId = :userId")
+    Page<UserPostDTO> findUserPostDTOs(@Param("userId") Long userId, Pageable pageable);
+}
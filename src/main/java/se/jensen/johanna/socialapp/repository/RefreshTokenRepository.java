@@ -1,25 +1,54 @@
 package se.jensen.johanna.socialapp.repository;
 
-import jakarta.transaction.Transactional;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import se.jensen.johanna.socialapp.model.RefreshToken;
 import se.jensen.johanna.socialapp.model.User;
 
+import java.time.Instant;
 import java.util.Optional;
 
 /**
  * Repository interface for {@link RefreshToken} entities.
  * Provides methods to perform various operations on refresh tokens in the database.
+ * Tokens are looked up by their SHA-256 hash, each method is a single statement.
  */
 @Repository
 public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
 
-    Optional<RefreshToken> findByToken(String token);
+    /**
+     * Stores a new token for the user, replacing the one they had (one token per user).
+     * An upsert on the unique user_id instead of delete, flush and insert.
+     *
+     * @return the number of inserted or updated rows, always 1
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("INSERT INTO RefreshToken (user, tokenHash, expiryDate) VALUES (:user, :tokenHash, :expiryDate) " +
+            "ON CONFLICT (user) DO UPDATE SET tokenHash = excluded.tokenHash, expiryDate = excluded.expiryDate")
+    int upsert(@Param("user") User user, @Param("tokenHash") String tokenHash, @Param("expiryDate") Instant expiryDate);
 
-    @Transactional
+    /**
+     * Replaces a token that has not expired yet with a new one.
+     *
+     * @return 1 if the old token was valid and is replaced, 0 if it is unknown or expired
+     */
     @Modifying
-    void deleteByUser(User user);
+    @Query("UPDATE RefreshToken t SET t.tokenHash = :newTokenHash, t.expiryDate = :expiryDate " +
+            "WHERE t.tokenHash = :oldTokenHash AND t.expiryDate > :now")
+    int rotate(@Param("oldTokenHash") String oldTokenHash, @Param("newTokenHash") String newTokenHash,
+               @Param("expiryDate") Instant expiryDate, @Param("now") Instant now);
+
+    /**
+     * The owner of a token, loaded with the token lookup in one statement.
+     */
+    @Query("SELECT u FROM RefreshToken t JOIN t.user u WHERE t.tokenHash = :tokenHash")
+    Optional<User> findUserByTokenHash(@Param("tokenHash") String tokenHash);
+
+    @Modifying
+    @Query("DELETE FROM RefreshToken t WHERE t.tokenHash = :tokenHash")
+    int deleteByTokenHash(@Param("tokenHash") String tokenHash);
 
 }
@@ -0,0 +1,14 @@
+package se.jensen.johanna.socialapp.repository;
+
+import se.jensen.johanna.socialapp.model.User;
+
+import java.util.Optional;
+
+/**
+ * Lookups of {@link User} by its natural id (username), served from the
+ * Hibernate second-level cache when possible.
+ */
+public interface UserNaturalIdRepository {
+
+    Optional<User> findByUsername(String username);
+}
@@ -0,0 +1,25 @@
+package se.jensen.johanna.socialapp.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import se.jensen.johanna.socialapp.model.User;
+
+import java.util.Optional;
+
+/**
+ * Resolves users through {@link Session#bySimpleNaturalId(Class)} instead of a JPQL query,
+ * so both the username-to-id resolution and the entity itself can come from the second-level cache.
+ */
+class UserNaturalIdRepositoryImpl implements UserNaturalIdRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Optional<User> findByUsername(String username) {
+        return entityManager.unwrap(Session.class)
+                .bySimpleNaturalId(User.class)
+                .loadOptional(username);
+    }
+}
@@ -1,12 +1,25 @@
 package se.jensen.johanna.socialapp.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import se.jensen.johanna.socialapp.dto.AdminUserDTO;
+import se.jensen.johanna.socialapp.dto.UserDTO;
+import se.jensen.johanna.socialapp.dto.UserListDTO;
+import se.jensen.johanna.socialapp.dto.UserVersion;
 import se.jensen.johanna.socialapp.model.User;
+import se.jensen.johanna.socialapp.security.UserCredentials;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Repository interface for {@link User} entities.
@@ -17,17 +30,97 @@ import java.util.Optional;
  */
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
-
-    Page<User> findByUsernameContainingIgnoreCase(String username, Pageable pageable);
-
-    Optional<User> findByUsername(String username);
+public interface UserRepository extends JpaRepository<User, Long>, UserNaturalIdRepository {
 
+    /**
+     * Email is not the natural id, so this lookup uses the query cache.
+     * The cached result is invalidated whenever the users table is written.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<User> findByEmail(String email);
 
+    /**
+     * The columns password login needs, without loading the entity.
+     *
+     * @param username the username
+     * @return the credentials, or empty if no user has the username
+     */
+    @Query("SELECT new se.jensen.johanna.socialapp.security.UserCredentials(u.userId, u.username, u.password, u.role) " +
+            "FROM User u WHERE u.username = :username")
+    Optional<UserCredentials> findCredentialsByUsername(@Param("username") String username);
+
     boolean existsByUsername(String username);
 
     boolean existsByEmail(String email);
 
+    /**
+     * Set-based variant of {@link #existsByEmail(String)} for bulk registration.
+     *
+     * @return the given emails that are already registered
+     */
+    @Query("SELECT u.email FROM User u WHERE u.email IN :emails")
+    Set<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    /**
+     * Set-based variant of {@link #existsByUsername(String)} for bulk registration.
+     *
+     * @return the given usernames that are already taken
+     */
+    @Query("SELECT u.username FROM User u WHERE u.username IN :usernames")
+    Set<String> findExistingUsernames(@Param("usernames") Collection<String> usernames);
+
+    /**
+     * Case-insensitive username search selecting only the {@link UserDTO} columns.
+     * LIKE wildcards in the search term are escaped, so they match literally.
+     *
+     * @param username part of the username to search for
+     * @param pageable the pagination and sorting information
+     * @return a {@link Page} of {@link UserDTO}
+     */
+    @Query(value = "SELECT new se.jensen.johanna.socialapp.dto.UserDTO(u.userId, u.profileImagePath, u.username, u.bio, u.updatedAt) " +
+            "FROM User u WHERE UPPER(u.username) LIKE UPPER(CONCAT('%', :#{escape([0])}, '%')) ESCAPE :#{escapeCharacter()}",
+            countQuery = "SELECT COUNT(u) FROM User u " +
+                    "WHERE UPPER(u.username) LIKE UPPER(CONCAT('%', :#{escape([0])}, '%')) ESCAPE :#{escapeCharacter()}")
+    Page<UserDTO> searchUserDTOs(String username, Pageable pageable);
+
+    /**
+     * Retrieves a single user as a {@link UserDTO} projection.
+     *
+     * @param userId the ID of the user
+     * @return the user, or empty if not found
+     */
+    @Query("SELECT new se.jensen.johanna.socialapp.dto.UserDTO(u.userId, u.profileImagePath, u.username, u.bio, u.updatedAt) " +
+            "FROM User u WHERE u.userId = :userId")
+    Optional<UserDTO> findUserDTOById(@Param("userId") Long userId);
+
+    /**
+     * Retrieves only the version columns of a user, to answer conditional requests without loading the profile.
+     *
+     * @param userId the ID of the user
+     * @return the version, or empty if not found
+     */
+    @Query("SELECT new se.jensen.johanna.socialapp.dto.UserVersion(u.userId, u.updatedAt) " +
+            "FROM User u WHERE u.userId = :userId")
+    Optional<UserVersion> findUserVersion(@Param("userId") Long userId);
+
+    /**
+     * Retrieves all users as {@link UserListDTO} projections.
+     *
+     * @return all users with id, username and profile image
+     */
+    @Query("SELECT new se.jensen.johanna.socialapp.dto.UserListDTO(u.userId, u.username, u.profileImagePath) FROM User u")
+    List<UserListDTO> findAllUserListDTOs();
+
+    /**
+     * Retrieves a page of users as {@link AdminUserDTO} projections.
+     *
+     * @param pageable the pagination and sorting information
+     * @return a {@link Page} of {@link AdminUserDTO}
+     */
+    @Query(value = "SELECT new se.jensen.johanna.socialapp.dto.AdminUserDTO(" +
+            "u.username, u.email, u.userId, u.role, u.bio, u.profileImagePath) FROM User u",
+            countQuery = "SELECT COUNT(u) FROM User u")
+    Page<AdminUserDTO> findAllAdminUserDTOs(Pageable pageable);
+
 
 }
@@ -0,0 +1,23 @@
+package se.jensen.johanna.socialapp.security;
+
+import org.springframework.security.core.AuthenticatedPrincipal;
+import se.jensen.johanna.socialapp.model.Role;
+
+/**
+ * The user behind an authenticated request, read from the claims of the access token.
+ * <p>
+ * Establishing it needs no database access. It carries only what the token says, so a service
+ * that needs the {@link se.jensen.johanna.socialapp.model.User} itself loads it by {@code userId}.
+ * </p>
+ *
+ * @param userId   the {@code sub} claim
+ * @param username the {@code name} claim
+ * @param role     the role from the {@code scope} claim
+ */
+public record AuthenticatedUser(Long userId, String username, Role role) implements AuthenticatedPrincipal {
+
+    @Override
+    public String getName() {
+        return username;
+    }
+}
@@ -0,0 +1,145 @@
+package se.jensen.johanna.socialapp.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import se.jensen.johanna.socialapp.cache.TokenRevokedEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * {@link JwtDecoder} that remembers tokens it has already verified.
+ * <p>
+ * Clients send the same access token with every request until it expires, and verifying the
+ * RSA signature and parsing the claims each time is the most expensive part of authenticating
+ * a request. A verified {@link Jwt} is kept until its {@code exp} under the SHA-256 of the token,
+ * so the cache holds no usable tokens. Tokens that fail verification are not cached.
+ * </p>
+ * <p>
+ * {@link #revoke} rejects a token before it expires, e.g. on logout. Revocations are handed to the
+ * {@code revocationPublisher} for the other nodes, which apply them through {@link #onTokenRevoked}.
+ * They are kept until the token expires, without a size bound, so no revocation is pushed out early.
+ * </p>
+ */
+public class CachingJwtDecoder implements JwtDecoder {
+    private final JwtDecoder delegate;
+    private final Cache<String, Jwt> verified;
+    private final Cache<String, Instant> revoked;
+    private final BiConsumer<String, Instant> revocationPublisher;
+
+    /**
+     * A decoder whose revocations stay on this node.
+     */
+    public CachingJwtDecoder(JwtDecoder delegate, long maximumSize, MeterRegistry meterRegistry) {
+        this(delegate, maximumSize, meterRegistry, (tokenKey, expiresAt) -> {
+        });
+    }
+
+    /**
+     * @param revocationPublisher sends each revocation, as token key and expiry, to the other nodes
+     */
+    public CachingJwtDecoder(JwtDecoder delegate, long maximumSize, MeterRegistry meterRegistry,
+                             BiConsumer<String, Instant> revocationPublisher) {
+        this.delegate = delegate;
+        this.revocationPublisher = revocationPublisher;
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(untilExpiry(Jwt::getExpiresAt))
+                .recordStats()
+                .build();
+        this.revoked = Caffeine.newBuilder()
+                .expireAfter(untilExpiry(Function.<Instant>identity()))
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verified, "jwt");
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        String key = key(token);
+        if (revoked.getIfPresent(key) != null) {
+            throw new BadJwtException("Token has been revoked");
+        }
+        Jwt jwt = verified.getIfPresent(key);
+        if (jwt != null) {
+            return jwt;
+        }
+        jwt = delegate.decode(token);
+        // a token without exp would stay valid forever, it is verified every time instead
+        if (jwt.getExpiresAt() != null) {
+            verified.put(key, jwt);
+        }
+        return jwt;
+    }
+
+    /**
+     * Rejects the token from now on until it expires.
+     * Tokens that are invalid, expired or already revoked are ignored, they are rejected anyway.
+     *
+     * @param token the encoded token
+     */
+    public void revoke(String token) {
+        Jwt jwt;
+        try {
+            jwt = decode(token);
+        } catch (JwtException e) {
+            return;
+        }
+        if (jwt.getExpiresAt() != null) {
+            String key = key(token);
+            revokeLocally(key, jwt.getExpiresAt());
+            revocationPublisher.accept(key, jwt.getExpiresAt());
+        }
+    }
+
+    @EventListener
+    public void onTokenRevoked(TokenRevokedEvent event) {
+        revokeLocally(event.tokenKey(), event.expiresAt());
+    }
+
+    private void revokeLocally(String key, Instant expiresAt) {
+        revoked.put(key, expiresAt);
+        verified.invalidate(key);
+    }
+
+    private static <V> Expiry<String, V> untilExpiry(Function<V, Instant> expiresAt) {
+        return new Expiry<>() {
+            @Override
+            public long expireAfterCreate(String key, V value, long currentTime) {
+                return Math.max(0, Duration.between(Instant.now(), expiresAt.apply(value)).toNanos());
+            }
+
+            @Override
+            public long expireAfterUpdate(String key, V value, long currentTime, long currentDuration) {
+                return expireAfterCreate(key, value, currentTime);
+            }
+
+            @Override
+            public long expireAfterRead(String key, V value, long currentTime, long currentDuration) {
+                return currentDuration;
+            }
+        };
+    }
+
+    private static String key(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
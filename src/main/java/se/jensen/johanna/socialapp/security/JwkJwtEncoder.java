@@ -0,0 +1,78 @@
+package se.jensen.johanna.socialapp.security;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.crypto.factories.DefaultJWSSignerFactory;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.JwtEncodingException;
+
+import java.net.URL;
+import java.time.Instant;
+import java.util.Date;
+
+/**
+ * {@link JwtEncoder} that signs every token with one key, in the algorithm of that key.
+ * <p>
+ * Used instead of {@code NimbusJwtEncoder}, which cannot select Ed25519 keys. The header is
+ * always the key's {@code alg} and {@code kid}, so callers need not know the algorithm;
+ * a header passed with the parameters must not ask for another algorithm. The signer is created once.
+ * </p>
+ */
+public class JwkJwtEncoder implements JwtEncoder {
+    private final JWSHeader header;
+    private final JWSSigner signer;
+
+    public JwkJwtEncoder(JWK signingKey) {
+        JWSAlgorithm algorithm = (JWSAlgorithm) signingKey.getAlgorithm();
+        if (algorithm == null || !signingKey.isPrivate()) {
+            throw new IllegalArgumentException("Signing key " + signingKey.getKeyID() + " needs an algorithm and a private key");
+        }
+        this.header = new JWSHeader.Builder(algorithm).keyID(signingKey.getKeyID()).build();
+        try {
+            this.signer = new DefaultJWSSignerFactory().createJWSSigner(signingKey, algorithm);
+        } catch (JOSEException e) {
+            throw new IllegalArgumentException("Cannot sign with key " + signingKey.getKeyID(), e);
+        }
+    }
+
+    @Override
+    public Jwt encode(JwtEncoderParameters parameters) throws JwtEncodingException {
+        if (parameters.getJwsHeader() != null
+                && !header.getAlgorithm().getName().equals(parameters.getJwsHeader().getAlgorithm().getName())) {
+            throw new JwtEncodingException("Tokens are signed with " + header.getAlgorithm() + ", not "
+                    + parameters.getJwsHeader().getAlgorithm().getName());
+        }
+        JwtClaimsSet claims = parameters.getClaims();
+        SignedJWT jwt = new SignedJWT(header, convert(claims));
+        try {
+            jwt.sign(signer);
+        } catch (JOSEException e) {
+            throw new JwtEncodingException("Signing the token failed: " + e.getMessage(), e);
+        }
+        return new Jwt(jwt.serialize(), claims.getIssuedAt(), claims.getExpiresAt(),
+                header.toJSONObject(), claims.getClaims());
+    }
+
+    private static JWTClaimsSet convert(JwtClaimsSet claims) {
+        JWTClaimsSet.Builder builder = new JWTClaimsSet.Builder();
+        claims.getClaims().forEach((name, value) -> {
+            if (value instanceof Instant instant) {
+                // serialized as seconds since the epoch
+                builder.claim(name, Date.from(instant));
+            } else if (value instanceof URL url) {
+                builder.claim(name, url.toExternalForm());
+            } else {
+                builder.claim(name, value);
+            }
+        });
+        return builder.build();
+    }
+}
@@ -0,0 +1,185 @@
+package se.jensen.johanna.socialapp.security;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.crypto.ECDSAVerifier;
+import com.nimbusds.jose.crypto.Ed25519Verifier;
+import com.nimbusds.jose.crypto.RSASSAVerifier;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.util.Base64URL;
+import org.springframework.security.oauth2.jose.jws.JwsAlgorithm;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * The JWS algorithms access tokens can be signed with, selected by {@code app.jwt.algorithm}.
+ * <p>
+ * Keys are configured as base64 DER, PKCS#8 for private and X.509 for public keys, as produced
+ * by {@code openssl pkcs8 -topk8 -nocrypt -outform DER} and {@code openssl pkey -pubout -outform DER}.
+ * RS256 needs an RSA key, ES256 a P-256 EC key and EdDSA an Ed25519 key.
+ * EdDSA signs several times faster than RS256 but verifies slower; verification mostly hits the cache
+ * of {@link CachingJwtDecoder}, so signing dominates on login and refresh heavy traffic.
+ * ES256 is the portable middle ground. See {@code JwsAlgorithmBenchmark}.
+ * </p>
+ */
+public enum JwtSigningAlgorithm implements JwsAlgorithm {
+    RS256("RSA") {
+        @Override
+        public JWK jwk(String keyId, PublicKey publicKey, PrivateKey privateKey) {
+            RSAKey.Builder builder = new RSAKey.Builder((RSAPublicKey) publicKey)
+                    .keyID(keyId).algorithm(jwsAlgorithm()).keyUse(KeyUse.SIGNATURE);
+            return (privateKey == null ? builder : builder.privateKey((RSAPrivateKey) privateKey)).build();
+        }
+
+        @Override
+        JWSVerifier verifier(JWK key) throws JOSEException {
+            return new RSASSAVerifier(key.toRSAKey());
+        }
+
+        @Override
+        KeyPair generateKeyPair(KeyPairGenerator generator) {
+            generator.initialize(2048);
+            return generator.generateKeyPair();
+        }
+    },
+    ES256("EC") {
+        @Override
+        public JWK jwk(String keyId, PublicKey publicKey, PrivateKey privateKey) {
+            if (!Curve.P_256.equals(Curve.forECParameterSpec(((ECPublicKey) publicKey).getParams()))) {
+                throw new IllegalStateException("ES256 needs a P-256 key, key " + keyId + " is on another curve");
+            }
+            ECKey.Builder builder = new ECKey.Builder(Curve.P_256, (ECPublicKey) publicKey)
+                    .keyID(keyId).algorithm(jwsAlgorithm()).keyUse(KeyUse.SIGNATURE);
+            return (privateKey == null ? builder : builder.privateKey((ECPrivateKey) privateKey)).build();
+        }
+
+        @Override
+        JWSVerifier verifier(JWK key) throws JOSEException {
+            return new ECDSAVerifier(key.toECKey());
+        }
+
+        @Override
+        KeyPair generateKeyPair(KeyPairGenerator generator) throws GeneralSecurityException {
+            generator.initialize(new ECGenParameterSpec("secp256r1"));
+            return generator.generateKeyPair();
+        }
+    },
+    EdDSA("Ed25519") {
+        @Override
+        public JWK jwk(String keyId, PublicKey publicKey, PrivateKey privateKey) {
+            OctetKeyPair.Builder builder = new OctetKeyPair.Builder(Curve.Ed25519,
+                    Base64URL.encode(rawKey(publicKey.getEncoded())))
+                    .keyID(keyId).algorithm(jwsAlgorithm()).keyUse(KeyUse.SIGNATURE);
+            return (privateKey == null ? builder : builder.d(Base64URL.encode(rawKey(privateKey.getEncoded())))).build();
+        }
+
+        @Override
+        JWSVerifier verifier(JWK key) throws JOSEException {
+            return new Ed25519Verifier(key.toOctetKeyPair());
+        }
+
+        @Override
+        KeyPair generateKeyPair(KeyPairGenerator generator) {
+            return generator.generateKeyPair();
+        }
+
+        // the raw 32-byte keys are the tail of their X.509 and PKCS#8 encodings
+        private byte[] rawKey(byte[] encoded) {
+            return Arrays.copyOfRange(encoded, encoded.length - ED25519_KEY_LENGTH, encoded.length);
+        }
+    };
+
+    private static final int ED25519_KEY_LENGTH = 32;
+
+    private final String keyAlgorithm;
+
+    JwtSigningAlgorithm(String keyAlgorithm) {
+        this.keyAlgorithm = keyAlgorithm;
+    }
+
+    @Override
+    public String getName() {
+        return name();
+    }
+
+    public JWSAlgorithm jwsAlgorithm() {
+        return JWSAlgorithm.parse(name());
+    }
+
+    /**
+     * A JWK for signing and verifying with this algorithm.
+     *
+     * @param keyId      the {@code kid} tokens signed with the key carry
+     * @param publicKey  the public key
+     * @param privateKey the private key, or null for a key that only verifies
+     */
+    public abstract JWK jwk(String keyId, PublicKey publicKey, PrivateKey privateKey);
+
+    /**
+     * A key that only verifies, from {@code kid:algorithm:public key} as listed in {@code app.jwt.previous-keys}.
+     */
+    public static JWK verificationKey(String spec) {
+        String[] parts = spec.trim().split(":", 3);
+        if (parts.length != 3) {
+            throw new IllegalStateException("Expected kid:algorithm:public key, got " + spec);
+        }
+        JwtSigningAlgorithm algorithm = valueOf(parts[1]);
+        return algorithm.jwk(parts[0], algorithm.parsePublicKey(parts[2]), null);
+    }
+
+    public PublicKey parsePublicKey(String base64Der) {
+        try {
+            return KeyFactory.getInstance(keyAlgorithm)
+                    .generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(base64Der)));
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalStateException("Not a base64 X.509 " + keyAlgorithm + " public key for " + name(), e);
+        }
+    }
+
+    public PrivateKey parsePrivateKey(String base64Der) {
+        try {
+            return KeyFactory.getInstance(keyAlgorithm)
+                    .generatePrivate(new PKCS8EncodedKeySpec(Base64.getDecoder().decode(base64Der)));
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalStateException("Not a base64 PKCS#8 " + keyAlgorithm + " private key for " + name(), e);
+        }
+    }
+
+    /**
+     * A new random key pair for this algorithm, for tests and benchmarks.
+     */
+    public KeyPair generateKeyPair() {
+        try {
+            return generateKeyPair(KeyPairGenerator.getInstance(keyAlgorithm));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot generate a key pair for " + name(), e);
+        }
+    }
+
+    /**
+     * A verifier for tokens signed with the key, which must be of this algorithm.
+     */
+    abstract JWSVerifier verifier(JWK key) throws JOSEException;
+
+    abstract KeyPair generateKeyPair(KeyPairGenerator generator) throws GeneralSecurityException;
+}
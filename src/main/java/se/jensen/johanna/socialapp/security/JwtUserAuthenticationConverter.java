@@ -0,0 +1,81 @@
+package se.jensen.johanna.socialapp.security;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.InvalidBearerTokenException;
+import se.jensen.johanna.socialapp.model.Role;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Turns a verified access token into an authentication with an {@link AuthenticatedUser} as principal.
+ * <p>
+ * Everything comes from the claims {@code TokenService} issues: {@code sub} is the user id,
+ * {@code name} the username and {@code scope} the authorities, e.g. {@code ROLE_MEMBER}.
+ * A token without these claims is rejected with 401. A changed role takes effect with the next token.
+ * </p>
+ */
+public class JwtUserAuthenticationConverter implements Converter<Jwt, AbstractAuthenticationToken> {
+    private static final String ROLE_PREFIX = "ROLE_";
+
+    @Override
+    public AbstractAuthenticationToken convert(Jwt jwt) {
+        List<String> scope = jwt.getClaimAsStringList("scope");
+        Collection<GrantedAuthority> authorities = scope == null ? List.of()
+                : scope.stream().<GrantedAuthority>map(SimpleGrantedAuthority::new).toList();
+        AuthenticatedUser user = new AuthenticatedUser(userId(jwt), jwt.getClaimAsString("name"), role(scope));
+        return new JwtUserAuthenticationToken(user, jwt, authorities);
+    }
+
+    private static Long userId(Jwt jwt) {
+        try {
+            return Long.valueOf(jwt.getSubject());
+        } catch (NumberFormatException e) {
+            throw new InvalidBearerTokenException("Token subject is not a user id");
+        }
+    }
+
+    private static Role role(List<String> scope) {
+        if (scope != null) {
+            for (String authority : scope) {
+                if (authority.startsWith(ROLE_PREFIX)) {
+                    try {
+                        return Role.valueOf(authority.substring(ROLE_PREFIX.length()));
+                    } catch (IllegalArgumentException e) {
+                        // not one of our roles
+                    }
+                }
+            }
+        }
+        throw new InvalidBearerTokenException("Token scope has no role");
+    }
+
+    /**
+     * Authentication of a request by access token, the token is kept as credentials.
+     */
+    static class JwtUserAuthenticationToken extends AbstractAuthenticationToken {
+        private final AuthenticatedUser principal;
+        private final Jwt jwt;
+
+        JwtUserAuthenticationToken(AuthenticatedUser principal, Jwt jwt, Collection<GrantedAuthority> authorities) {
+            super(authorities);
+            this.principal = principal;
+            this.jwt = jwt;
+            setAuthenticated(true);
+        }
+
+        @Override
+        public AuthenticatedUser getPrincipal() {
+            return principal;
+        }
+
+        @Override
+        public Jwt getCredentials() {
+            return jwt;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package se.jensen.johanna.socialapp.security;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.proc.BadJOSEException;
+import com.nimbusds.jose.proc.BadJWSException;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.EncryptedJWT;
+import com.nimbusds.jwt.JWT;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.JWTParser;
+import com.nimbusds.jwt.PlainJWT;
+import com.nimbusds.jwt.SignedJWT;
+import com.nimbusds.jwt.proc.JWTProcessor;
+
+import java.text.ParseException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Verifies the signature of a JWT with the key named by its {@code kid}, in the algorithm of that key.
+ * <p>
+ * Used instead of {@code DefaultJWTProcessor}, which cannot verify with Ed25519 keys. The verifiers
+ * are created once per key. Only the signature is checked here, the claims are validated by
+ * {@code NimbusJwtDecoder}. Unsigned and encrypted tokens are rejected.
+ * </p>
+ */
+public class KeyIdJwtProcessor implements JWTProcessor<SecurityContext> {
+    private record KeyVerifier(JwtSigningAlgorithm algorithm, JWSVerifier verifier) {
+    }
+
+    private final Map<String, KeyVerifier> verifiersByKeyId = new HashMap<>();
+
+    /**
+     * @param keys the keys tokens are accepted from, each with a {@code kid} and an {@code alg}
+     */
+    public KeyIdJwtProcessor(JWKSet keys) {
+        for (JWK key : keys.getKeys()) {
+            if (key.getKeyID() == null || key.getAlgorithm() == null) {
+                throw new IllegalArgumentException("JWT verification keys need a kid and an alg");
+            }
+            JwtSigningAlgorithm algorithm = JwtSigningAlgorithm.valueOf(key.getAlgorithm().getName());
+            try {
+                verifiersByKeyId.put(key.getKeyID(), new KeyVerifier(algorithm, algorithm.verifier(key)));
+            } catch (JOSEException e) {
+                throw new IllegalArgumentException("Cannot verify with key " + key.getKeyID(), e);
+            }
+        }
+    }
+
+    @Override
+    public JWTClaimsSet process(String token, SecurityContext context) throws ParseException, BadJOSEException, JOSEException {
+        return process(JWTParser.parse(token), context);
+    }
+
+    @Override
+    public JWTClaimsSet process(JWT jwt, SecurityContext context) throws BadJOSEException, JOSEException {
+        if (jwt instanceof SignedJWT signedJwt) {
+            return process(signedJwt, context);
+        }
+        throw new BadJOSEException("Only signed JWTs are accepted");
+    }
+
+    @Override
+    public JWTClaimsSet process(PlainJWT jwt, SecurityContext context) throws BadJOSEException {
+        throw new BadJOSEException("Unsigned JWTs are not accepted");
+    }
+
+    @Override
+    public JWTClaimsSet process(SignedJWT jwt, SecurityContext context) throws BadJOSEException, JOSEException {
+        KeyVerifier keyVerifier = jwt.getHeader().getKeyID() == null ? null
+                : verifiersByKeyId.get(jwt.getHeader().getKeyID());
+        if (keyVerifier == null || !keyVerifier.algorithm().jwsAlgorithm().equals(jwt.getHeader().getAlgorithm())) {
+            throw new BadJOSEException("Signed JWT rejected: no key for kid " + jwt.getHeader().getKeyID()
+                    + " and alg " + jwt.getHeader().getAlgorithm());
+        }
+        if (!jwt.verify(keyVerifier.verifier())) {
+            throw new BadJWSException("Signed JWT rejected: Invalid signature");
+        }
+        try {
+            return jwt.getJWTClaimsSet();
+        } catch (ParseException e) {
+            throw new BadJOSEException("Invalid JWT claims: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public JWTClaimsSet process(EncryptedJWT jwt, SecurityContext context) throws BadJOSEException {
+        throw new BadJOSEException("Encrypted JWTs are not accepted");
+    }
+}
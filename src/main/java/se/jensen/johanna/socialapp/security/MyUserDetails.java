@@ -11,38 +11,42 @@ import java.util.List;
 
 /**
  * Custom implementation of {@link UserDetails} for Spring Security.
- * This class wraps the domain {@link User} entity to provide authentication and authorization information.
+ * This class wraps the {@link UserCredentials} of a domain {@link User} to provide authentication and authorization information.
  */
 
 public class MyUserDetails implements UserDetails {
-    private final User user;
+    private final UserCredentials credentials;
 
     public MyUserDetails(User user) {
-        this.user = user;
+        this(UserCredentials.of(user));
+    }
+
+    public MyUserDetails(UserCredentials credentials) {
+        this.credentials = credentials;
     }
 
     @Override
     public String getUsername() {
-        return user.getUsername();
+        return credentials.username();
     }
 
     @Override
     public String getPassword() {
-        return user.getPassword();
+        return credentials.password();
     }
 
 
     public Long getUserId() {
-        return user.getUserId();
+        return credentials.userId();
     }
 
     public Role getRole() {
-        return user.getRole();
+        return credentials.role();
     }
 
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        return List.of(new SimpleGrantedAuthority("ROLE_" + user.getRole().name()));
+        return List.of(new SimpleGrantedAuthority("ROLE_" + credentials.role().name()));
 
     }
 
@@ -66,8 +70,4 @@ public class MyUserDetails implements UserDetails {
         return true;
     }
 
-    public User getDomainUser() {
-        return user;
-    }
-
 }
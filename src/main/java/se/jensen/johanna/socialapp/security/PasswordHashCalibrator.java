@@ -0,0 +1,88 @@
+package se.jensen.johanna.socialapp.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+import java.util.function.LongSupplier;
+
+/**
+ * Picks the cost factor of a password hash for the hardware the application runs on.
+ * <p>
+ * Starting from the configured minimum, the cost is raised one step at a time as long as
+ * hashing stays within the target time. The minimum is always used, even if hashing takes
+ * longer than the target, so a slow machine never weakens the hashes below it.
+ * </p>
+ */
+@Slf4j
+public final class PasswordHashCalibrator {
+    private static final String SAMPLE_PASSWORD = "calibration-password";
+    private static final int SAMPLES = 3;
+
+    private PasswordHashCalibrator() {
+    }
+
+    /**
+     * @return the highest BCrypt strength in {@code [minStrength, maxStrength]} that hashes within {@code targetMs}.
+     */
+    public static int bcryptStrength(long targetMs, int minStrength, int maxStrength) {
+        return calibrate("bcrypt strength", targetMs, minStrength, maxStrength, BCryptPasswordEncoder::new, System::nanoTime);
+    }
+
+    /**
+     * @return the highest number of Argon2 iterations in {@code [minIterations, maxIterations]}
+     * that hashes within {@code targetMs} with the given memory and parallelism.
+     */
+    public static int argon2Iterations(long targetMs, int memoryKib, int parallelism,
+                                       int minIterations, int maxIterations) {
+        return calibrate("argon2 iterations", targetMs, minIterations, maxIterations,
+                iterations -> argon2(memoryKib, parallelism, iterations), System::nanoTime);
+    }
+
+    public static Argon2PasswordEncoder argon2(int memoryKib, int parallelism, int iterations) {
+        return new Argon2PasswordEncoder(16, 32, parallelism, memoryKib, iterations);
+    }
+
+    /**
+     * Median time in milliseconds to hash one password with the encoder.
+     */
+    public static long measureMs(PasswordEncoder encoder) {
+        return measureMs(encoder, System::nanoTime);
+    }
+
+    private static long measureMs(PasswordEncoder encoder, LongSupplier nanoTime) {
+        long[] samples = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = nanoTime.getAsLong();
+            encoder.encode(SAMPLE_PASSWORD);
+            samples[i] = (nanoTime.getAsLong() - start) / 1_000_000;
+        }
+        Arrays.sort(samples);
+        return samples[SAMPLES / 2];
+    }
+
+    /**
+     * Raises the cost from {@code min} while hashing with the next cost stays within {@code targetMs}.
+     * The time source is a parameter so tests can give encoders known timings.
+     */
+    static int calibrate(String name, long targetMs, int min, int max,
+                         IntFunction<PasswordEncoder> encoderForCost, LongSupplier nanoTime) {
+        // the first hashes run in the interpreter, warm up so they do not skew the minimum
+        encoderForCost.apply(min).encode(SAMPLE_PASSWORD);
+        int cost = min;
+        long millis = measureMs(encoderForCost.apply(min), nanoTime);
+        while (cost < max) {
+            long next = measureMs(encoderForCost.apply(cost + 1), nanoTime);
+            if (next > targetMs) {
+                break;
+            }
+            cost++;
+            millis = next;
+        }
+        log.info("Calibrated {} to {} ({} ms per hash, target {} ms)", name, cost, millis, targetMs);
+        return cost;
+    }
+}
@@ -0,0 +1,98 @@
+package se.jensen.johanna.socialapp.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import se.jensen.johanna.socialapp.config.RateLimitProperties;
+import se.jensen.johanna.socialapp.dto.ErrorResponse;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Answers requests to a {@link RateLimitedRoute} with 429 and a Retry-After header once the client
+ * has used up its limit.
+ * <p>
+ * Runs before the security filter chain, so throttled requests cost neither a password check nor a
+ * database call. Routes under {@code /auth} are counted per IP. The others are counted per user,
+ * read from the access token with the application's {@link JwtDecoder}, whose cache the security
+ * chain hits afterwards; requests without a valid token are counted per IP and then rejected by the
+ * security chain as usual. The IP is the client address Tomcat resolves from X-Forwarded-For, which
+ * only trusts hops added by {@code server.tomcat.remoteip.internal-proxies}.
+ * </p>
+ */
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER - 1)
+@RequiredArgsConstructor
+public class RateLimitFilter extends OncePerRequestFilter {
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final RateLimitProperties properties;
+    private final RateLimiter rateLimiter;
+    private final JwtDecoder jwtDecoder;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !properties.enabled();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        RateLimitedRoute route = RateLimitedRoute.of(request.getMethod(), path);
+        if (route == null || !rateLimiter.isLimited(route)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        long wait = rateLimiter.tryAcquire(route, client(route, request));
+        if (wait > 0) {
+            reject(path, response, retryAfterSeconds(wait));
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private String client(RateLimitedRoute route, HttpServletRequest request) {
+        if (!route.perIp()) {
+            String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+            if (authorization != null && authorization.startsWith(BEARER_PREFIX)) {
+                try {
+                    return "user:" + jwtDecoder.decode(authorization.substring(BEARER_PREFIX.length())).getSubject();
+                } catch (JwtException e) {
+                    // counted per IP, the security chain answers with 401
+                }
+            }
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    private static long retryAfterSeconds(long waitNanos) {
+        long nanosPerSecond = TimeUnit.SECONDS.toNanos(1);
+        return (waitNanos + nanosPerSecond - 1) / nanosPerSecond;
+    }
+
+    private void reject(String path, HttpServletResponse response, long retryAfterSeconds) throws IOException {
+        HttpStatus status = HttpStatus.TOO_MANY_REQUESTS;
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new ErrorResponse(status.value(), "TOO_MANY_REQUESTS",
+                "Too many requests, try again in " + retryAfterSeconds + " seconds", path, Instant.now().toString()));
+    }
+}
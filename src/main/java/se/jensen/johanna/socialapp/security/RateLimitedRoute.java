@@ -0,0 +1,57 @@
+package se.jensen.johanna.socialapp.security;
+
+import org.springframework.http.HttpMethod;
+
+import java.util.regex.Pattern;
+
+/**
+ * The endpoints {@link RateLimitFilter} throttles. Their limits are configured under
+ * {@code app.rate-limit.routes.<name>}, a route without a limit is not throttled.
+ * <p>
+ * Routes under {@code /auth} are called before the client has a token and are limited per IP,
+ * the others per user.
+ * </p>
+ */
+public enum RateLimitedRoute {
+    LOGIN("login", "/auth/login", true),
+    REGISTER("register", "/auth/register", true),
+    POST("post", "/posts", false),
+    COMMENT("comment", "/posts/\\d+/comments|/comments/\\d+/replies", false),
+    LIKE("like", "/posts/\\d+/likes|/comments/\\d+/likes", false);
+
+    private final String configName;
+    private final Pattern path;
+    private final boolean perIp;
+
+    RateLimitedRoute(String configName, String pathRegex, boolean perIp) {
+        this.configName = configName;
+        this.path = Pattern.compile(pathRegex);
+        this.perIp = perIp;
+    }
+
+    public String configName() {
+        return configName;
+    }
+
+    public boolean perIp() {
+        return perIp;
+    }
+
+    /**
+     * The route of a request, or {@code null} if the request is not rate limited.
+     *
+     * @param method the HTTP method
+     * @param path   the path within the application
+     */
+    public static RateLimitedRoute of(String method, String path) {
+        if (!HttpMethod.POST.matches(method)) {
+            return null;
+        }
+        for (RateLimitedRoute route : values()) {
+            if (route.path.matcher(path).matches()) {
+                return route;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,83 @@
+package se.jensen.johanna.socialapp.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import se.jensen.johanna.socialapp.config.RateLimitProperties;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * One {@link TokenBucket} per route and client, for the routes with a configured limit.
+ * <p>
+ * Buckets are dropped when unused for the longest configured period, after which they would be full
+ * anyway, and beyond {@code app.rate-limit.max-buckets}. Rejected requests are counted in
+ * {@code rate_limit.rejected} tagged by route, the buckets are published as {@code cache.*}
+ * metrics of the cache {@code rate_limit_buckets}.
+ * </p>
+ */
+@Component
+public class RateLimiter {
+    private record BucketKey(RateLimitedRoute route, String client) {
+    }
+
+    private final Map<RateLimitedRoute, RateLimitProperties.Limit> limits = new EnumMap<>(RateLimitedRoute.class);
+    private final Map<RateLimitedRoute, Counter> rejected = new EnumMap<>(RateLimitedRoute.class);
+    private final Cache<BucketKey, TokenBucket> buckets;
+
+    public RateLimiter(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        Duration longestPeriod = Duration.ofMinutes(1);
+        for (RateLimitedRoute route : RateLimitedRoute.values()) {
+            RateLimitProperties.Limit limit = properties.routes().get(route.configName());
+            if (limit == null) {
+                continue;
+            }
+            if (limit.capacity() <= 0 || limit.period() == null || limit.period().isZero() || limit.period().isNegative()) {
+                throw new IllegalArgumentException("app.rate-limit.routes." + route.configName()
+                        + " needs a positive capacity and period");
+            }
+            limits.put(route, limit);
+            rejected.put(route, Counter.builder("rate_limit.rejected")
+                    .description("Requests rejected with 429 Too Many Requests")
+                    .tag("route", route.configName())
+                    .register(meterRegistry));
+            if (limit.period().compareTo(longestPeriod) > 0) {
+                longestPeriod = limit.period();
+            }
+        }
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(properties.maxBuckets())
+                .expireAfterAccess(longestPeriod)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, buckets, "rate_limit_buckets");
+    }
+
+    public boolean isLimited(RateLimitedRoute route) {
+        return limits.containsKey(route);
+    }
+
+    /**
+     * Takes a token from the client's bucket of the route.
+     *
+     * @param route  a route with a limit
+     * @param client the user or IP the request is counted for
+     * @return 0 when the request is allowed, otherwise the nanoseconds until the client may try again
+     */
+    public long tryAcquire(RateLimitedRoute route, String client) {
+        RateLimitProperties.Limit limit = limits.get(route);
+        long now = System.nanoTime();
+        TokenBucket bucket = buckets.get(new BucketKey(route, client),
+                key -> new TokenBucket(limit.capacity(), limit.period(), now));
+        long wait = bucket.tryConsume(now);
+        if (wait > 0) {
+            rejected.get(route).increment();
+        }
+        return wait;
+    }
+}
@@ -0,0 +1,48 @@
+package se.jensen.johanna.socialapp.security;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket holding up to {@code capacity} requests, refilled evenly over {@code period}.
+ * <p>
+ * The only state is the time at which the bucket is full again, so taking a token is a single
+ * compare-and-set and concurrent requests of one client never block each other. The bucket starts full.
+ * Times are {@link System#nanoTime()} values.
+ * </p>
+ */
+public final class TokenBucket {
+    private final long nanosPerToken;
+    private final long capacityNanos;
+    private final AtomicLong fullAt;
+
+    public TokenBucket(long capacity, Duration period, long now) {
+        if (capacity <= 0 || period.isZero() || period.isNegative()) {
+            throw new IllegalArgumentException("A token bucket needs a positive capacity and period");
+        }
+        this.nanosPerToken = Math.max(1, period.toNanos() / capacity);
+        this.capacityNanos = nanosPerToken * capacity;
+        this.fullAt = new AtomicLong(now);
+    }
+
+    /**
+     * Takes one token if there is one.
+     *
+     * @param now the current time
+     * @return 0 when a token was taken, otherwise the nanoseconds until the next token is available
+     */
+    public long tryConsume(long now) {
+        while (true) {
+            long current = fullAt.get();
+            // past fullAt the bucket is full, tokens are taken from now on
+            long next = (current - now > 0 ? current : now) + nanosPerToken;
+            long overdraft = next - now - capacityNanos;
+            if (overdraft > 0) {
+                return overdraft;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+}
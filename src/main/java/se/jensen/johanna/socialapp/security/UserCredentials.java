@@ -0,0 +1,25 @@
+package se.jensen.johanna.socialapp.security;
+
+import se.jensen.johanna.socialapp.model.Role;
+import se.jensen.johanna.socialapp.model.User;
+
+/**
+ * What password login needs of a user, without the rest of the {@link User} entity.
+ *
+ * @param userId   the ID of the user
+ * @param username the username
+ * @param password the password hash
+ * @param role     the role of the user
+ */
+public record UserCredentials(Long userId, String username, String password, Role role) {
+
+    public static UserCredentials of(User user) {
+        return new UserCredentials(user.getUserId(), user.getUsername(), user.getPassword(), user.getRole());
+    }
+
+    // keeps the password hash out of logs
+    @Override
+    public String toString() {
+        return "UserCredentials[userId=" + userId + ", username=" + username + ", role=" + role + "]";
+    }
+}
@@ -1,6 +1,7 @@
 package se.jensen.johanna.socialapp.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
@@ -8,8 +9,7 @@ import se.jensen.johanna.socialapp.dto.LoginRequest;
 import se.jensen.johanna.socialapp.dto.LoginResponse;
 import se.jensen.johanna.socialapp.dto.LoginResult;
 import se.jensen.johanna.socialapp.dto.RefreshResult;
-import se.jensen.johanna.socialapp.exception.RefreshTokenException;
-import se.jensen.johanna.socialapp.model.RefreshToken;
+import se.jensen.johanna.socialapp.dto.RegisterUserRequest;
 import se.jensen.johanna.socialapp.security.MyUserDetails;
 
 @Service
@@ -17,36 +17,64 @@ import se.jensen.johanna.socialapp.security.MyUserDetails;
 public class AuthService {
     private final TokenService tokenService;
     private final RefreshTokenService refreshTokenService;
-    private final MyUserDetailsService myUserDetailsService;
+    private final AuthenticationManager authenticationManager;
+    private final UserService userService;
 
 
+    /**
+     * Verifies username and password and issues an access token and a refresh token.
+     * The password is verified on the bounded password-hashing pool.
+     *
+     * @param loginRequest username and password
+     * @return tokens and user information
+     * @throws org.springframework.security.core.AuthenticationException if the credentials are wrong
+     * @throws se.jensen.johanna.socialapp.exception.ServiceBusyException if password hashing is saturated
+     */
     public LoginResult login(LoginRequest loginRequest) {
-        Authentication auth = new UsernamePasswordAuthenticationToken(
-                loginRequest.username(),
-                loginRequest.password()
+        Authentication auth = authenticationManager.authenticate(
+                UsernamePasswordAuthenticationToken.unauthenticated(
+                        loginRequest.username(),
+                        loginRequest.password()));
 
-        );
-        MyUserDetails userDetails = (MyUserDetails) auth.getPrincipal();
-        String accessToken = tokenService.generateAccessToken(auth);
-        RefreshToken refreshToken = refreshTokenService.createRefreshToken(userDetails.getUserId());
+        return issueTokens(auth);
+    }
 
-        return new LoginResult(new LoginResponse(accessToken, userDetails.getUserId(), userDetails.getRole(), userDetails.getUsername()), refreshToken.getToken());
+    /**
+     * Registers a new user and issues tokens for them right away.
+     * The password was just hashed, so it is not verified a second time.
+     *
+     * @param registerUserRequest username, password and user details
+     * @return tokens and user information
+     */
+    public LoginResult register(RegisterUserRequest registerUserRequest) {
+        MyUserDetails userDetails = new MyUserDetails(userService.registerUser(registerUserRequest));
+        return issueTokens(UsernamePasswordAuthenticationToken.authenticated(
+                userDetails, null, userDetails.getAuthorities()));
+    }
 
+    private LoginResult issueTokens(Authentication auth) {
+        MyUserDetails userDetails = (MyUserDetails) auth.getPrincipal();
+        String accessToken = tokenService.generateAccessToken(auth);
+        String refreshToken = refreshTokenService.createRefreshToken(userDetails.getUserId());
 
+        return new LoginResult(new LoginResponse(accessToken, userDetails.getUserId(), userDetails.getRole(), userDetails.getUsername()), refreshToken);
     }
 
+    /**
+     * Rotates the refresh token and issues a new access token for its user.
+     * Two statements: the rotation and the lookup of the user.
+     *
+     * @param oldTokenStr the refresh token from the cookie
+     * @return a new access token and refresh token
+     * @throws se.jensen.johanna.socialapp.exception.RefreshTokenException if the token is unknown or has expired
+     */
     public RefreshResult refresh(String oldTokenStr) {
-        RefreshToken oldToken = refreshTokenService.findByToken(oldTokenStr)
-                .map(refreshTokenService::verifyExpiration)
-                .orElseThrow(() -> new RefreshTokenException("RefreshToken is not in database")
-                );
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotateRefreshToken(oldTokenStr);
 
-        MyUserDetails userDetails = (MyUserDetails) myUserDetailsService.loadUserByUsername(oldToken.getUser().getUsername());
+        MyUserDetails userDetails = new MyUserDetails(rotation.user());
         Authentication auth = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-        RefreshToken newRefreshToken = refreshTokenService.createRefreshToken(oldToken.getUser().getUserId());
-
-        return new RefreshResult(tokenService.generateAccessToken(auth), newRefreshToken.getToken());
 
+        return new RefreshResult(tokenService.generateAccessToken(auth), rotation.refreshToken());
     }
 
 
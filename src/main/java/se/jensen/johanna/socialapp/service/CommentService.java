@@ -1,20 +1,37 @@
 package se.jensen.johanna.socialapp.service;
 
-import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import se.jensen.johanna.socialapp.cache.CacheInvalidationBus;
+import se.jensen.johanna.socialapp.cache.EntityChange;
+import se.jensen.johanna.socialapp.cache.RequestCoalescer;
 import se.jensen.johanna.socialapp.dto.*;
 import se.jensen.johanna.socialapp.exception.ForbiddenException;
+import se.jensen.johanna.socialapp.exception.InvalidRequestException;
 import se.jensen.johanna.socialapp.exception.NotFoundException;
 import se.jensen.johanna.socialapp.mapper.CommentMapper;
 import se.jensen.johanna.socialapp.model.Comment;
 import se.jensen.johanna.socialapp.model.Post;
 import se.jensen.johanna.socialapp.model.User;
+import se.jensen.johanna.socialapp.repository.CommentLikeRepository;
 import se.jensen.johanna.socialapp.repository.CommentRepository;
 import se.jensen.johanna.socialapp.service.helper.EntityProvider;
+import se.jensen.johanna.socialapp.util.CursorUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Service class responsible for the business logic of comment management.
@@ -27,9 +44,20 @@ import se.jensen.johanna.socialapp.service.helper.EntityProvider;
 @Transactional
 @RequiredArgsConstructor
 public class CommentService {
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+
+    /**
+     * Sort key clients pass as {@code sort=top} to get comments ranked by score.
+     */
+    public static final String TOP_SORT_KEY = "top";
+    private static final Sort TOP_SORT = Sort.by(Sort.Direction.DESC, "score", "commentId");
+
     private final CommentRepository commentRepository;
+    private final CommentLikeRepository commentLikeRepository;
     private final CommentMapper commentMapper;
     private final EntityProvider entityProvider;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final RequestCoalescer requestCoalescer;
 
 
     /**
@@ -51,6 +79,8 @@ public class CommentService {
         comment.setUser(user);
         comment.setPost(post);
         commentRepository.save(comment);
+        commentRepository.bumpCommentsVersion(postId);
+        cacheInvalidationBus.publish(EntityChange.comments(postId));
 
         log.info("User with id={} successfully commented on post with id={}", userId, postId);
 
@@ -79,6 +109,9 @@ public class CommentService {
         reply.setUser(user);
         parent.addReply(reply);
         commentRepository.save(reply);
+        commentRepository.adjustReplyCount(parentId, 1);
+        commentRepository.bumpCommentsVersion(parent.getPost().getPostId());
+        cacheInvalidationBus.publish(EntityChange.comments(parent.getPost().getPostId()));
 
         log.info("User with id={} successfully commented on comment with id={}", userId, parentId);
 
@@ -86,15 +119,74 @@ public class CommentService {
 
     }
 
+    /**
+     * Entity tag of the comment pages of a post, read from the post's comments version without loading any comment.
+     * Covers added, edited and removed comments and likes on the post.
+     *
+     * @param postId   ID of the post
+     * @param viewerId ID of the viewing user, pages differ per viewer through likedByMe
+     * @return the entity tag of the post's comment pages
+     */
+    @Transactional(readOnly = true)
+    public String getCommentsETag(Long postId, Long viewerId) {
+        long version = commentRepository.findCommentsVersion(postId).orElse(0L);
+        return new CommentsVersion(postId, version).eTag(viewerId);
+    }
+
+    /**
+     * Entity tag of the reply pages of a comment, which is the version of all comments on its post.
+     *
+     * @param commentId ID of the parent comment
+     * @param viewerId  ID of the viewing user
+     * @return the entity tag of the comment's reply pages
+     * @throws NotFoundException if the comment does not exist
+     */
+    @Transactional(readOnly = true)
+    public String getRepliesETag(Long commentId, Long viewerId) {
+        Long postId = commentRepository.findPostIdByCommentId(commentId)
+                .orElseThrow(() -> new NotFoundException("Comment not found"));
+        return getCommentsETag(postId, viewerId);
+    }
+
     /**
      * Retrieves a list of all Main comments without parentId related to a post.
+     * With {@code sort=top} the comments are ranked by their stored score,
+     * which is read in index order instead of sorting all comments of the post.
+     * <p>
+     * The first page is what every reader of a post requests, so concurrent requests for it
+     * share one load of the viewer-independent tree and like counts. Only likedByMe is loaded per viewer.
+     * </p>
      *
-     * @param postId ID of the post to fetch comments to
+     * @param postId   ID of the post to fetch comments to
+     * @param viewerId ID of the viewing user, used for likedByMe
      * @return Returns {@link CommentDTO}
      */
-    public Page<CommentDTO> findAllMainComments(Long postId, Pageable pageable) {
-        return commentRepository.findByPost_postIdAndParentIsNull(postId, pageable)
-                .map(commentMapper::toCommentDTO);
+    @Transactional(readOnly = true)
+    public Page<CommentDTO> findAllMainComments(Long postId, Long viewerId, Pageable pageable) {
+        Pageable resolved = resolveTopSort(pageable);
+        if (resolved.getPageNumber() > 0) {
+            Page<CommentRow> comments = commentRepository.findMainCommentRows(postId, resolved);
+            List<CommentDTO> content = toCommentTree(comments.getContent(), viewerId);
+            return new PageImpl<>(content, comments.getPageable(), comments.getTotalElements());
+        }
+
+        SharedCommentPage shared = requestCoalescer.load("main-comments", List.of(postId, resolved), () -> {
+            Page<CommentRow> comments = commentRepository.findMainCommentRows(postId, resolved);
+            CommentTree tree = loadReplies(comments.getContent());
+            CommentLikeSummary likeCounts = tree.commentIds().isEmpty()
+                    ? CommentLikeSummary.EMPTY
+                    : CommentLikeSummary.of(commentLikeRepository.countLikesForComments(tree.commentIds(), null));
+            return new SharedCommentPage(comments, tree, likeCounts);
+        });
+
+        CommentLikeSummary likes = shared.likeCounts();
+        if (viewerId != null && !shared.tree().commentIds().isEmpty()) {
+            Set<Long> likedByViewer = commentLikeRepository.findLikedCommentIds(shared.tree().commentIds(), viewerId);
+            likes = likes.withLikedByViewer(likedByViewer);
+        }
+        Page<CommentRow> comments = shared.comments();
+        List<CommentDTO> content = toCommentDTOs(comments.getContent(), shared.tree().repliesByParent(), likes);
+        return new PageImpl<>(content, comments.getPageable(), comments.getTotalElements());
 
     }
 
@@ -102,11 +194,64 @@ public class CommentService {
      * Retrieves a list of all replies to a specific comment
      *
      * @param commentId ID of comment to fetch replies to
+     * @param viewerId  ID of the viewing user, used for likedByMe
      * @return Returns {@link CommentDTO}
      */
-    public Page<CommentDTO> findAllRepliesForComment(Long commentId, Pageable pageable) {
-        return commentRepository.findByParent_CommentIdOrderByCreatedAtAsc(commentId, pageable)
-                .map(commentMapper::toCommentDTO);
+    @Transactional(readOnly = true)
+    public Page<CommentDTO> findAllRepliesForComment(Long commentId, Long viewerId, Pageable pageable) {
+        Page<CommentRow> replies = commentRepository.findReplyRows(commentId, pageable);
+        List<CommentDTO> content = toCommentTree(replies.getContent(), viewerId);
+        return new PageImpl<>(content, replies.getPageable(), replies.getTotalElements());
+    }
+
+    /**
+     * Retrieves main comments for a post with keyset pagination, newest first.
+     * Seeks on (createdAt, commentId) instead of skipping rows with an offset,
+     * so later slices cost the same as the first.
+     *
+     * @param postId   ID of the post to fetch comments to
+     * @param viewerId ID of the viewing user, used for likedByMe
+     * @param cursor   cursor from the previous slice, null for the first slice
+     * @param size     max number of comments on the slice
+     * @return {@link CursorPage} of {@link CommentDTO}
+     * @throws InvalidRequestException if the cursor or size is invalid
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<CommentDTO> scrollMainComments(Long postId, Long viewerId, String cursor, int size) {
+        Limit limit = toLimit(size);
+        List<CommentRow> comments;
+        if (cursor == null) {
+            comments = commentRepository.findMainCommentsFirst(postId, limit);
+        } else {
+            CursorUtils.Cursor position = CursorUtils.decode(cursor);
+            comments = commentRepository.findMainCommentsBefore(
+                    postId, position.createdAt(), position.id(), limit);
+        }
+        return toCursorPage(comments, viewerId, size);
+    }
+
+    /**
+     * Retrieves replies to a specific comment with keyset pagination, oldest first.
+     *
+     * @param commentId ID of comment to fetch replies to
+     * @param viewerId  ID of the viewing user, used for likedByMe
+     * @param cursor    cursor from the previous slice, null for the first slice
+     * @param size      max number of replies on the slice
+     * @return {@link CursorPage} of {@link CommentDTO}
+     * @throws InvalidRequestException if the cursor or size is invalid
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<CommentDTO> scrollRepliesForComment(Long commentId, Long viewerId, String cursor, int size) {
+        Limit limit = toLimit(size);
+        List<CommentRow> replies;
+        if (cursor == null) {
+            replies = commentRepository.findRepliesFirst(commentId, limit);
+        } else {
+            CursorUtils.Cursor position = CursorUtils.decode(cursor);
+            replies = commentRepository.findRepliesAfter(
+                    commentId, position.createdAt(), position.id(), limit);
+        }
+        return toCursorPage(replies, viewerId, size);
     }
 
     /**
@@ -127,6 +272,8 @@ public class CommentService {
 
         commentMapper.updateComment(commentRequest, commentToUpdate);
         commentRepository.save(commentToUpdate);
+        commentRepository.bumpCommentsVersion(commentToUpdate.getPost().getPostId());
+        cacheInvalidationBus.publish(EntityChange.comments(commentToUpdate.getPost().getPostId()));
 
         log.info("User with id={} successfully updated comment with id={}", userId, commentId);
         return commentMapper.toUpdateCommentResponse(commentToUpdate);
@@ -145,7 +292,7 @@ public class CommentService {
 
         Comment comment = entityProvider.getCommentOrThrow(commentId);
         validateAuthor(userId, comment);
-        commentRepository.delete(comment);
+        removeComment(comment);
         log.info("User with id={} successfully deleted comment with id={}", userId, commentId);
     }
 
@@ -163,6 +310,8 @@ public class CommentService {
         Comment comment = entityProvider.getCommentOrThrow(commentId);
         commentMapper.updateComment(commentRequest, comment);
         commentRepository.save(comment);
+        commentRepository.bumpCommentsVersion(comment.getPost().getPostId());
+        cacheInvalidationBus.publish(EntityChange.comments(comment.getPost().getPostId()));
         return commentMapper.toUpdateCommentResponse(comment);
 
     }
@@ -174,9 +323,121 @@ public class CommentService {
      */
     public void deleteComment(Long commentId) {
         Comment comment = entityProvider.getCommentOrThrow(commentId);
+        removeComment(comment);
+    }
+
+
+    /**
+     * Deletes a comment and decrements the reply counter of its parent, if it is a reply.
+     * The delete is flushed first: it fails when a concurrent delete removed the comment,
+     * so the counter is only decremented by the transaction that removed it.
+     *
+     * @throws NotFoundException if the comment was deleted concurrently
+     */
+    private void removeComment(Comment comment) {
+        Comment parent = comment.getParent();
         commentRepository.delete(comment);
+        try {
+            commentRepository.flush();
+        } catch (OptimisticLockingFailureException e) {
+            throw new NotFoundException(String.format("Comment with id %d not found.", comment.getCommentId()));
+        }
+        commentRepository.bumpCommentsVersion(comment.getPost().getPostId());
+        cacheInvalidationBus.publish(EntityChange.comments(comment.getPost().getPostId()));
+        if (parent != null) {
+            commentRepository.adjustReplyCount(parent.getCommentId(), -1);
+        }
+    }
+
+    /**
+     * Replaces {@code sort=top} with the score order backed by the (post_id, parent_id, score) index.
+     */
+    private Pageable resolveTopSort(Pageable pageable) {
+        if (pageable.getSort().getOrderFor(TOP_SORT_KEY) == null) {
+            return pageable;
+        }
+        return PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), TOP_SORT);
+    }
+
+    /**
+     * Fetches one extra row to find out if there is a next slice without a count query.
+     */
+    private Limit toLimit(int size) {
+        if (size < 1 || size > MAX_CURSOR_PAGE_SIZE) {
+            throw new InvalidRequestException(
+                    String.format("Size must be between 1 and %d.", MAX_CURSOR_PAGE_SIZE));
+        }
+        return Limit.of(size + 1);
+    }
+
+    private CursorPage<CommentDTO> toCursorPage(List<CommentRow> comments, Long viewerId, int size) {
+        boolean hasNext = comments.size() > size;
+        List<CommentRow> slice = hasNext ? comments.subList(0, size) : comments;
+        String nextCursor = null;
+        if (hasNext) {
+            CommentRow last = slice.get(slice.size() - 1);
+            nextCursor = CursorUtils.encode(last.createdAt(), last.commentId());
+        }
+        return new CursorPage<>(toCommentTree(slice, viewerId), nextCursor, hasNext);
+    }
+
+    /**
+     * Builds the comment tree for a page of rows. Replies are loaded one level at a time
+     * with a single query per depth, and like counts for the whole tree with one grouped query.
+     *
+     * @param rows     the comments on the page
+     * @param viewerId ID of the viewing user, used for likedByMe
+     * @return the comments with their nested replies, in page order
+     */
+    private List<CommentDTO> toCommentTree(List<CommentRow> rows, Long viewerId) {
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+        CommentTree tree = loadReplies(rows);
+        CommentLikeSummary likes = CommentLikeSummary.of(
+                commentLikeRepository.countLikesForComments(tree.commentIds(), viewerId));
+        return toCommentDTOs(rows, tree.repliesByParent(), likes);
+    }
+
+    /**
+     * Replies of a page of comments, loaded one level at a time.
+     *
+     * @param repliesByParent replies keyed by the ID of the comment they reply to
+     * @param commentIds      IDs of the comments on the page and all their replies
+     */
+    private record CommentTree(Map<Long, List<CommentRow>> repliesByParent, List<Long> commentIds) {
+    }
+
+    /**
+     * The part of a comment page that is the same for every viewer, shared between coalesced requests.
+     */
+    private record SharedCommentPage(Page<CommentRow> comments, CommentTree tree, CommentLikeSummary likeCounts) {
     }
 
+    private CommentTree loadReplies(List<CommentRow> rows) {
+        Map<Long, List<CommentRow>> repliesByParent = new HashMap<>();
+        List<Long> commentIds = new ArrayList<>();
+        List<Long> level = rows.stream().map(CommentRow::commentId).toList();
+        while (!level.isEmpty()) {
+            commentIds.addAll(level);
+            List<CommentRow> replies = commentRepository.findReplyRowsByParentIds(level);
+            for (CommentRow reply : replies) {
+                repliesByParent.computeIfAbsent(reply.parentId(), id -> new ArrayList<>()).add(reply);
+            }
+            level = replies.stream().map(CommentRow::commentId).toList();
+        }
+        return new CommentTree(repliesByParent, commentIds);
+    }
+
+    private List<CommentDTO> toCommentDTOs(List<CommentRow> rows,
+                                           Map<Long, List<CommentRow>> repliesByParent,
+                                           CommentLikeSummary likes) {
+        return rows.stream()
+                .map(row -> commentMapper.toCommentDTO(row,
+                        toCommentDTOs(repliesByParent.getOrDefault(row.commentId(), List.of()), repliesByParent, likes),
+                        likes))
+                .toList();
+    }
 
     /**
      * Validates that the provided user ID matches the author of the given comment.
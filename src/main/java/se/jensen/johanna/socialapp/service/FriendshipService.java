@@ -1,9 +1,13 @@
 package se.jensen.johanna.socialapp.service;
 
-import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import se.jensen.johanna.socialapp.cache.CacheInvalidationBus;
+import se.jensen.johanna.socialapp.cache.EntityChange;
+import se.jensen.johanna.socialapp.config.CacheConfig;
 import se.jensen.johanna.socialapp.dto.FriendResponseDTO;
 import se.jensen.johanna.socialapp.dto.MyFriendRequest;
 import se.jensen.johanna.socialapp.dto.UserListDTO;
@@ -38,6 +42,7 @@ public class FriendshipService {
     private final FriendshipMapper friendshipMapper;
     private final UserMapper userMapper;
     private final EntityProvider entityProvider;
+    private final CacheInvalidationBus cacheInvalidationBus;
 
 
     /**
@@ -95,6 +100,7 @@ public class FriendshipService {
 
         friendship.accept();
         friendshipRepository.save(friendship);
+        publishFriendListChange(friendship);
 
         log.info("Friend request with id={} accepted by user with id={}", friendshipId, currentUserId);
 
@@ -133,6 +139,8 @@ public class FriendshipService {
      * @param userId ID of the user to fetch friends for
      * @return {@link UserListDTO}
      */
+    @Cacheable(cacheNames = CacheConfig.FRIENDS, key = "#userId")
+    @Transactional(readOnly = true)
     public List<UserListDTO> getFriendsForUser(Long userId) {
         return friendshipRepository.findFriendshipsByUserIdAndStatus(userId, FriendshipStatus.ACCEPTED)
                 .stream().map(f -> {
@@ -150,6 +158,7 @@ public class FriendshipService {
      * @return a list of {@link MyFriendRequest} objects
      */
 
+    @Transactional(readOnly = true)
     public List<MyFriendRequest> getFriendRequestsForUser(Long userId) {
         return friendshipRepository.findFriendshipsByUserIdAndStatus(userId, FriendshipStatus.PENDING)
                 .stream().map(f -> {
@@ -186,9 +195,16 @@ public class FriendshipService {
         log.info("User with id={} deleted friendship with id={}", userId, friendshipId);
 
         friendshipRepository.delete(friendship);
+        publishFriendListChange(friendship);
     }
 
 
+    private void publishFriendListChange(Friendship friendship) {
+        cacheInvalidationBus.publish(
+                EntityChange.friends(friendship.getSender().getUserId()),
+                EntityChange.friends(friendship.getReceiver().getUserId()));
+    }
+
     private void validateParticipant(Friendship friendship, Long userId) {
         if (!friendship.getSender().getUserId().equals(userId) && !friendship.getReceiver().getUserId().equals(userId)) {
             log.warn("User with id={} tried to access friendship with id={} without being participant.", userId, friendship.getFriendshipId());
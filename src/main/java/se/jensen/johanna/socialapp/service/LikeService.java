@@ -6,6 +6,7 @@ import org.springframework.stereotype.Service;
 import se.jensen.johanna.socialapp.dto.LikeResponse;
 import se.jensen.johanna.socialapp.model.*;
 import se.jensen.johanna.socialapp.repository.CommentLikeRepository;
+import se.jensen.johanna.socialapp.repository.CommentRepository;
 import se.jensen.johanna.socialapp.repository.PostLikeRepository;
 import se.jensen.johanna.socialapp.service.helper.EntityProvider;
 
@@ -16,6 +17,7 @@ public class LikeService {
     private final PostLikeRepository postLikeRepository;
     private final EntityProvider entityProvider;
     private final CommentLikeRepository commentLikeRepository;
+    private final CommentRepository commentRepository;
 
 
     public LikeResponse togglePostLike(Long postId, Long userId) {
@@ -39,9 +41,13 @@ public class LikeService {
             Comment comment = entityProvider.getCommentOrThrow(commentId);
             User user = entityProvider.getUserOrThrow(userId);
             commentLikeRepository.save(new CommentLike(comment, user));
+            commentRepository.adjustLikeCount(commentId, 1);
+            commentRepository.bumpCommentsVersionOfComment(commentId);
 
-        } else {
-            commentLikeRepository.deleteCommentLikeByComment_CommentIdAndUser_UserId(commentId, userId);
+        } else if (commentLikeRepository.deleteBetween(commentId, userId) > 0) {
+            // a concurrent unlike may have removed the like first, only the one that removed it counts it
+            commentRepository.adjustLikeCount(commentId, -1);
+            commentRepository.bumpCommentsVersionOfComment(commentId);
         }
 
         return new LikeResponse(commentLikeRepository.countByComment_CommentId(commentId), !currentlyLiked);
@@ -1,10 +1,15 @@
 package se.jensen.johanna.socialapp.service;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import se.jensen.johanna.socialapp.cache.UserCredentialsCache;
+import se.jensen.johanna.socialapp.exception.NotFoundException;
 import se.jensen.johanna.socialapp.model.User;
 import se.jensen.johanna.socialapp.repository.UserRepository;
 import se.jensen.johanna.socialapp.security.MyUserDetails;
@@ -15,19 +20,22 @@ import se.jensen.johanna.socialapp.security.MyUserDetails;
  * This service is responsible for retrieving user authentication and authorization data
  * from the database during the login process. It bridges the application's domain
  * {@link User} entity and Spring Security's requirement for a {@link UserDetails} object.
+ * As {@link UserDetailsPasswordService} it also stores rehashed passwords after a successful login.
  */
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
-public class MyUserDetailsService implements UserDetailsService {
+public class MyUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
     private final UserRepository userRepository;
+    private final UserCredentialsCache userCredentialsCache;
 
     /**
      * Locates the user based on the provided username.
      * <p>
-     * This method is invoked by the Spring Security authentication provider. It searches
-     * for the user in the database via the {@link UserRepository}. If found, the user data
-     * is wrapped in a {@link MyUserDetails} instance.
+     * This method is invoked by the Spring Security authentication provider. It reads
+     * the user's credentials from the {@link UserCredentialsCache}, or from the database via the
+     * {@link UserRepository} on a miss. If found, they are wrapped in a {@link MyUserDetails} instance.
      *
      * @param username the username identifying the user whose data is required.
      * @return a fully populated {@link UserDetails} object for the specified user.
@@ -35,11 +43,32 @@ public class MyUserDetailsService implements UserDetailsService {
      */
 
     @Override
+    @Transactional(readOnly = true)
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username).orElseThrow(() -> new UsernameNotFoundException("User not found " + username));
-        System.out.println("DEBUG: Försöker logga in användare: " + username);
-        System.out.println("DEBUG: Lösenord i Java-objektet: " + user.getPassword());
-        return new MyUserDetails(user);
+        return new MyUserDetails(userCredentialsCache.get(username, name ->
+                userRepository.findCredentialsByUsername(name)
+                        .orElseThrow(() -> new UsernameNotFoundException("User not found " + name))));
+
+    }
 
+    /**
+     * Replaces the stored password hash of a user who just logged in successfully.
+     * <p>
+     * Called by Spring Security when the stored hash was made with another algorithm or a lower cost
+     * than the current password encoder uses, with the password already hashed the current way.
+     *
+     * @param userDetails the authenticated user
+     * @param newPassword the new password hash
+     * @return the user with the new password hash
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        Long userId = ((MyUserDetails) userDetails).getUserId();
+        User user = userRepository.findById(userId).orElseThrow(NotFoundException::new);
+        user.setPassword(newPassword);
+        userCredentialsCache.evict(user.getUsername());
+        log.info("Rehashed password of user with id={}", userId);
+        return new MyUserDetails(user);
     }
 }
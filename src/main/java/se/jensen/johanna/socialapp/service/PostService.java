@@ -1,11 +1,17 @@
 package se.jensen.johanna.socialapp.service;
 
-import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import se.jensen.johanna.socialapp.cache.CacheInvalidationBus;
+import se.jensen.johanna.socialapp.cache.EntityChange;
+import se.jensen.johanna.socialapp.cache.RequestCoalescer;
+import se.jensen.johanna.socialapp.config.CacheConfig;
 import se.jensen.johanna.socialapp.dto.*;
 import se.jensen.johanna.socialapp.exception.ForbiddenException;
 import se.jensen.johanna.socialapp.exception.NotFoundException;
@@ -29,6 +35,8 @@ public class PostService {
     private final PostRepository postRepository;
     private final PostMapper postMapper;
     private final EntityProvider entityProvider;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final RequestCoalescer requestCoalescer;
 
 
     /**
@@ -37,10 +45,9 @@ public class PostService {
      * @param pageable the pagination and sorting information
      * @return a {@link Page} of {@link PostDTO} containing post and author-details
      */
+    @Transactional(readOnly = true)
     public Page<PostDTO> getAllPosts(Pageable pageable) {
-        Page<Post> postPage = postRepository.findAll(pageable);
-
-        return postPage.map(postMapper::toPostDTO);
+        return postRepository.findAllPostDTOs(pageable);
 
     }
 
@@ -52,13 +59,28 @@ public class PostService {
      * @return a {@link Page} of {@link UserPostDTO} containing post-details
      * @throws NotFoundException if the user with the specified ID does not exist
      */
+    @Transactional(readOnly = true)
     public Page<UserPostDTO> getPostsForUser(Long userId, Pageable pageable) {
         entityProvider.getUserOrThrow(userId);
-        Page<Post> userPosts = postRepository.findByUser_UserId(userId, pageable);
-        return userPosts.map(postMapper::toUserPostDTO);
+        return postRepository.findUserPostDTOs(userId, pageable);
     }
 
 
+    /**
+     * Entity tag of a post, read from its version columns only.
+     * Lets unchanged posts be answered with 304 before the post is loaded and mapped.
+     *
+     * @param postId the ID of the post
+     * @return the entity tag of the post
+     * @throws NotFoundException if the post with the specified ID is not found
+     */
+    @Transactional(readOnly = true)
+    public String getPostETag(Long postId) {
+        return postRepository.findPostVersion(postId)
+                .map(PostVersion::eTag)
+                .orElseThrow(() -> new NotFoundException(String.format("Post with id %d not found.", postId)));
+    }
+
     /**
      * Finds a single post by its unique identifier.
      *
@@ -66,9 +88,29 @@ public class PostService {
      * @return the {@link PostDTO} representing the found post
      * @throws NotFoundException if the post with the specified ID is not found
      */
+    @Cacheable(cacheNames = CacheConfig.POSTS, key = "#postId")
+    @Transactional(readOnly = true)
     public PostDTO getPost(Long postId) {
-        Post post = entityProvider.getPostOrThrow(postId);
-        return postMapper.toPostDTO(post);
+        return requestCoalescer.load(CacheConfig.POSTS, postId, () -> postRepository.findPostDTOById(postId)
+                .orElseThrow(() -> {
+                    log.warn("Post with id={} not found", postId);
+                    return new NotFoundException(String.format("Post with id %d not found.", postId));
+                }));
+    }
+
+    /**
+     * Loads a post from the database and replaces the cached one.
+     * For a cached post older than the version just read, whose eviction has not reached this node yet.
+     *
+     * @param postId the ID of the post to load
+     * @return the {@link PostDTO} representing the post
+     * @throws NotFoundException if the post with the specified ID is not found
+     */
+    @CachePut(cacheNames = CacheConfig.POSTS, key = "#postId")
+    @Transactional(readOnly = true)
+    public PostDTO reloadPost(Long postId) {
+        return postRepository.findPostDTOById(postId)
+                .orElseThrow(() -> new NotFoundException(String.format("Post with id %d not found.", postId)));
     }
 
     /**
@@ -86,6 +128,7 @@ public class PostService {
         Post post = postMapper.toPost(postRequest);
         post.setUser(user);
         postRepository.save(post);
+        cacheInvalidationBus.publish(EntityChange.post(post.getPostId()));
         log.info("Post created for user with id={}", userId);
         return postMapper.toPostResponseDTO(post);
 
@@ -107,6 +150,7 @@ public class PostService {
         validateAuthor(post, userId);
         postMapper.updatePost(postRequest, post);
         postRepository.save(post);
+        cacheInvalidationBus.publish(EntityChange.post(postId));
 
         log.info("Post with id={} is updated for user with id={}", postId, userId);
         return postMapper.toUpdatePostResponseDTO(post);
@@ -128,6 +172,7 @@ public class PostService {
         validateAuthor(post, userId);
 
         postRepository.delete(post);
+        cacheInvalidationBus.publish(EntityChange.post(postId), EntityChange.comments(postId));
         log.info("Post with id={} deleted for user with id={}", postId, userId);
     }
 
@@ -148,6 +193,7 @@ public class PostService {
 
         postMapper.updatePost(postRequest, post);
         postRepository.save(post);
+        cacheInvalidationBus.publish(EntityChange.post(postId));
         log.info("ADMIN successfully updated post with id={}", postId);
 
         return postMapper.toUpdatePostResponseDTO(post);
@@ -164,6 +210,7 @@ public class PostService {
 
         Post post = entityProvider.getPostOrThrow(postId);
         postRepository.delete(post);
+        cacheInvalidationBus.publish(EntityChange.post(postId), EntityChange.comments(postId));
 
         log.info("ADMIN successfully deleted post with id={}", postId);
     }
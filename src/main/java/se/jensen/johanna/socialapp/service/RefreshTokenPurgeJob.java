@@ -0,0 +1,135 @@
+package se.jensen.johanna.socialapp.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Deletes expired refresh tokens.
+ * <p>
+ * A token is otherwise only removed when it is presented again, so abandoned sessions would stay forever.
+ * Rows are deleted oldest first in batches of {@code batch-size}, each batch its own short transaction,
+ * and at most {@code max-batches} per run so a large backlog is worked off over several runs.
+ * On PostgreSQL the run holds an advisory lock, so with several nodes only one of them purges at a time.
+ * </p>
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.refresh-token.purge.enabled", havingValue = "true", matchIfMissing = true)
+public class RefreshTokenPurgeJob {
+    /**
+     * Key of the advisory lock, the same on every node
+     */
+    static final long LOCK_KEY = 0x5254_5055_5247_45L;
+    private static final String DELETE_BATCH =
+            "DELETE FROM refresh_tokens WHERE refresh_token_id IN (" +
+                    "SELECT refresh_token_id FROM refresh_tokens WHERE expiry_date < ? ORDER BY expiry_date LIMIT ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Counter purgedTokens;
+    private final Timer completedRuns;
+    private final Timer skippedRuns;
+    private final int batchSize;
+    private final int maxBatches;
+
+    public RefreshTokenPurgeJob(JdbcTemplate jdbcTemplate,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.refresh-token.purge.batch-size:1000}") int batchSize,
+                                @Value("${app.refresh-token.purge.max-batches:100}") int maxBatches) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+        this.purgedTokens = Counter.builder("refresh_tokens.purged")
+                .description("Expired refresh tokens deleted by the purge job")
+                .register(meterRegistry);
+        this.completedRuns = Timer.builder("refresh_tokens.purge")
+                .tag("outcome", "completed")
+                .register(meterRegistry);
+        this.skippedRuns = Timer.builder("refresh_tokens.purge")
+                .tag("outcome", "locked")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${app.refresh-token.purge.initial-delay-ms:60000}",
+            fixedDelayString = "${app.refresh-token.purge.interval-ms:3600000}")
+    public void purgeScheduled() {
+        try {
+            purgeExpired();
+        } catch (RuntimeException e) {
+            log.warn("Purging expired refresh tokens failed, retrying on the next run", e);
+        }
+    }
+
+    /**
+     * Deletes expired refresh tokens, unless another node is already doing so.
+     *
+     * @return the number of deleted tokens, 0 if another node holds the lock
+     */
+    public int purgeExpired() {
+        Timer.Sample sample = Timer.start();
+        Integer deleted = jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+            boolean postgres = "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName());
+            if (postgres && !advisoryLock(connection, "pg_try_advisory_lock")) {
+                return null;
+            }
+            try {
+                return deleteInBatches(connection);
+            } finally {
+                if (postgres) {
+                    advisoryLock(connection, "pg_advisory_unlock");
+                }
+            }
+        });
+        if (deleted == null) {
+            sample.stop(skippedRuns);
+            log.debug("Refresh token purge is running on another node");
+            return 0;
+        }
+        sample.stop(completedRuns);
+        purgedTokens.increment(deleted);
+        if (deleted > 0) {
+            log.info("Purged {} expired refresh tokens", deleted);
+        }
+        return deleted;
+    }
+
+    private int deleteInBatches(Connection connection) throws SQLException {
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        int total = 0;
+        try (PreparedStatement delete = connection.prepareStatement(DELETE_BATCH)) {
+            for (int batch = 0; batch < maxBatches; batch++) {
+                delete.setObject(1, now);
+                delete.setInt(2, batchSize);
+                int deleted = delete.executeUpdate();
+                total += deleted;
+                if (deleted < batchSize) {
+                    break;
+                }
+            }
+        }
+        return total;
+    }
+
+    private static boolean advisoryLock(Connection connection, String function) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT " + function + "(?)")) {
+            statement.setLong(1, LOCK_KEY);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+}
@@ -4,21 +4,27 @@ import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import se.jensen.johanna.socialapp.exception.NotFoundException;
 import se.jensen.johanna.socialapp.exception.RefreshTokenException;
 import se.jensen.johanna.socialapp.model.RefreshToken;
 import se.jensen.johanna.socialapp.model.User;
 import se.jensen.johanna.socialapp.repository.RefreshTokenRepository;
 import se.jensen.johanna.socialapp.repository.UserRepository;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
-import java.util.Optional;
+import java.util.HexFormat;
 import java.util.UUID;
 
 /**
  * Service class for managing the lifecycle of Refresh Tokens.
  * Responsible for persisting tokens in the database, verifying their expiration,
  * and facilitating the issuance of new JWT Access Tokens.
+ * <p>
+ * Only the SHA-256 hash of a token is stored, so a leaked table cannot be used to refresh sessions.
+ * Issuing a token is one upsert, rotating one is an update plus the lookup of its user.
+ * </p>
  */
 
 @Transactional
@@ -33,55 +39,54 @@ public class RefreshTokenService {
     private final UserRepository userRepository;
 
     /**
-     * Finds a {@link RefreshToken} by its token string.
+     * A rotated refresh token and the user it belongs to.
      *
-     * @param refreshToken the token string to search for
-     * @return an {@link Optional} containing the found RefreshToken, or empty if not found
+     * @param user         the owner of the token
+     * @param refreshToken the new token, to be sent to the client
      */
-
-    public Optional<RefreshToken> findByToken(String refreshToken) {
-        return refreshTokenRepository.findByToken(refreshToken);
+    public record Rotation(User user, String refreshToken) {
     }
 
     /**
      * Creates a new {@link RefreshToken} for a specific user.
-     * If a refresh token already exists for the user, it is deleted before creating a new one.
+     * If a refresh token already exists for the user, it is replaced.
      *
      * @param userId the ID of the user for whom the token is created
-     * @return the newly created and saved {@link RefreshToken}
-     * @throws NotFoundException if the user with the given ID is not found
+     * @return the new token, to be sent to the client
      */
 
-    public RefreshToken createRefreshToken(Long userId) {
-        User user = userRepository.findById(userId).orElseThrow(NotFoundException::new);
-        refreshTokenRepository.deleteByUser(user);
-        refreshTokenRepository.flush();
-
-        RefreshToken refreshToken = new RefreshToken();
-        refreshToken.setUser(user);
-        refreshToken.setToken(UUID.randomUUID().toString());
-        refreshToken.setExpiryDate(Instant.now().plusMillis(refreshTokenDurationMs));
-
-        return refreshTokenRepository.save(refreshToken);
-
-
+    public String createRefreshToken(Long userId) {
+        String token = UUID.randomUUID().toString();
+        // a reference is enough for the foreign key, the user row is not read
+        refreshTokenRepository.upsert(userRepository.getReferenceById(userId), hash(token), newExpiryDate());
+        return token;
     }
 
     /**
-     * Verifies if a {@link RefreshToken} has expired.
-     * If the token is expired, it is removed from the database and an exception is thrown.
+     * Replaces a valid refresh token with a new one.
+     * If the token has expired, it is removed from the database and an exception is thrown.
+     * The exception does not roll back the transaction, so the removal is committed.
      *
-     * @param refreshToken the token to verify
-     * @return the token if it is still valid
-     * @throws RefreshTokenException if the token has expired
+     * @param oldToken the token sent by the client
+     * @return the new token and its user
+     * @throws RefreshTokenException if the token is unknown or has expired
      */
 
-    public RefreshToken verifyExpiration(RefreshToken refreshToken) {
-        if (refreshToken.getExpiryDate().isBefore(Instant.now())) {
-            refreshTokenRepository.delete(refreshToken);
-            throw new RefreshTokenException("Refresh token has expired. Please Log in again.");
+    @Transactional(dontRollbackOn = RefreshTokenException.class)
+    public Rotation rotateRefreshToken(String oldToken) {
+        String oldTokenHash = hash(oldToken);
+        String newToken = UUID.randomUUID().toString();
+        String newTokenHash = hash(newToken);
+
+        if (refreshTokenRepository.rotate(oldTokenHash, newTokenHash, newExpiryDate(), Instant.now()) == 0) {
+            if (refreshTokenRepository.deleteByTokenHash(oldTokenHash) > 0) {
+                throw new RefreshTokenException("Refresh token has expired. Please Log in again.");
+            }
+            throw new RefreshTokenException("RefreshToken is not in database");
         }
-        return refreshToken;
+        User user = refreshTokenRepository.findUserByTokenHash(newTokenHash)
+                .orElseThrow(() -> new RefreshTokenException("RefreshToken is not in database"));
+        return new Rotation(user, newToken);
     }
 
     /**
@@ -91,8 +96,24 @@ public class RefreshTokenService {
      */
 
     public void deleteRefreshToken(String refreshToken) {
-        findByToken(refreshToken).ifPresent(refreshTokenRepository::delete);
+        refreshTokenRepository.deleteByTokenHash(hash(refreshToken));
+
+    }
+
+    /**
+     * SHA-256 of the token as lower-case hex, the form stored in {@code refresh_tokens.token_hash}.
+     */
+    static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
 
+    private Instant newExpiryDate() {
+        return Instant.now().plusMillis(refreshTokenDurationMs);
     }
 
 }
@@ -0,0 +1,256 @@
+package se.jensen.johanna.socialapp.service;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import se.jensen.johanna.socialapp.cache.CacheInvalidationBus;
+import se.jensen.johanna.socialapp.cache.EntityChange;
+import se.jensen.johanna.socialapp.dto.RegisterUserRequest;
+import se.jensen.johanna.socialapp.dto.admin.BulkUserResponse;
+import se.jensen.johanna.socialapp.dto.admin.BulkUserResult;
+import se.jensen.johanna.socialapp.dto.admin.BulkUserResult.Status;
+import se.jensen.johanna.socialapp.exception.InvalidRequestException;
+import se.jensen.johanna.socialapp.mapper.UserMapper;
+import se.jensen.johanna.socialapp.model.Role;
+import se.jensen.johanna.socialapp.model.User;
+import se.jensen.johanna.socialapp.repository.UserRepository;
+import se.jensen.johanna.socialapp.security.BoundedPasswordEncoder;
+import se.jensen.johanna.socialapp.util.CsvUtils;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+/**
+ * Creates many MEMBER accounts in one request, e.g. when onboarding an organisation.
+ * <p>
+ * The rows go through the same checks as {@link UserService#registerUser}, but set-based:
+ * <ol>
+ * <li>each row is validated on its own (bean validation, matching passwords)</li>
+ * <li>emails and usernames are checked against the upload and the database with one IN query per chunk</li>
+ * <li>passwords are hashed in parallel on a fork-join pool sized to the cores,
+ * outside of any transaction so no connection is held while hashing</li>
+ * <li>users are inserted in chunks, each chunk in its own transaction and sent in JDBC batches</li>
+ * </ol>
+ * A row that fails does not stop the others; every row gets an entry in the report.
+ * </p>
+ */
+@Slf4j
+@Service
+public class UserProvisioningService {
+    private static final List<String> CSV_COLUMNS = List.of("email", "username", "password", "confirmPassword");
+
+    private final UserRepository userRepository;
+    private final UserMapper userMapper;
+    private final PasswordEncoder passwordEncoder;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final ForkJoinPool hashingPool;
+    private final int maxRows;
+    private final int chunkSize;
+
+    public UserProvisioningService(UserRepository userRepository,
+                                   UserMapper userMapper,
+                                   BoundedPasswordEncoder passwordEncoder,
+                                   Validator validator,
+                                   TransactionTemplate transactionTemplate,
+                                   CacheInvalidationBus cacheInvalidationBus,
+                                   @Value("${app.provisioning.hash-parallelism:0}") int hashParallelism,
+                                   @Value("${app.provisioning.max-rows:10000}") int maxRows,
+                                   @Value("${app.provisioning.chunk-size:500}") int chunkSize) {
+        this.userRepository = userRepository;
+        this.userMapper = userMapper;
+        // the login pool would shed most of a large upload, the fork-join pool bounds the parallelism instead
+        this.passwordEncoder = passwordEncoder.unbounded();
+        this.validator = validator;
+        this.transactionTemplate = transactionTemplate;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.hashingPool = new ForkJoinPool(hashParallelism > 0 ? hashParallelism : Runtime.getRuntime().availableProcessors());
+        this.maxRows = maxRows;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Parses a CSV upload with the header {@code email,username,password[,confirmPassword]}
+     * and provisions its rows. Without a confirmPassword column the password is taken as confirmed.
+     *
+     * @param csv the CSV text
+     * @return a report with one result per data row
+     * @throws InvalidRequestException if the header is missing a column or there are too many rows
+     */
+    public BulkUserResponse provisionCsv(String csv) {
+        List<List<String>> records = CsvUtils.parse(csv);
+        if (records.isEmpty()) {
+            return provision(List.of());
+        }
+        List<String> header = records.get(0).stream().map(String::trim).toList();
+        int email = requireColumn(header, CSV_COLUMNS.get(0));
+        int username = requireColumn(header, CSV_COLUMNS.get(1));
+        int password = requireColumn(header, CSV_COLUMNS.get(2));
+        int confirmPassword = header.indexOf(CSV_COLUMNS.get(3));
+
+        List<RegisterUserRequest> requests = records.subList(1, records.size()).stream()
+                .map(fields -> new RegisterUserRequest(
+                        field(fields, email).trim(),
+                        field(fields, username).trim(),
+                        field(fields, password),
+                        confirmPassword < 0 ? field(fields, password) : field(fields, confirmPassword)))
+                .toList();
+        return provision(requests);
+    }
+
+    /**
+     * Creates a MEMBER account for every valid row whose email and username are not taken.
+     *
+     * @param requests the rows, in upload order
+     * @return a report with one result per row, in the same order
+     * @throws InvalidRequestException if there are more rows than {@code app.provisioning.max-rows}
+     */
+    public BulkUserResponse provision(List<RegisterUserRequest> requests) {
+        if (requests.size() > maxRows) {
+            throw new InvalidRequestException("At most " + maxRows + " users can be provisioned at once");
+        }
+        long start = System.nanoTime();
+        BulkUserResult[] results = new BulkUserResult[requests.size()];
+
+        List<Integer> accepted = validate(requests, results);
+        accepted = rejectTaken(requests, accepted, results);
+        List<String> hashes = hashPasswords(requests, accepted);
+        insert(requests, accepted, hashes, results);
+
+        List<BulkUserResult> report = Arrays.asList(results);
+        int created = (int) report.stream().filter(r -> r.status() == Status.CREATED).count();
+        log.info("Provisioned {} of {} users in {} ms", created, requests.size(), (System.nanoTime() - start) / 1_000_000);
+        return new BulkUserResponse(created, requests.size() - created, report);
+    }
+
+    /**
+     * Bean validation, matching passwords and uniqueness within the upload, the first occurrence wins.
+     */
+    private List<Integer> validate(List<RegisterUserRequest> requests, BulkUserResult[] results) {
+        List<Integer> accepted = new ArrayList<>();
+        Set<String> emails = new HashSet<>();
+        Set<String> usernames = new HashSet<>();
+        for (int i = 0; i < requests.size(); i++) {
+            RegisterUserRequest request = requests.get(i);
+            Set<ConstraintViolation<RegisterUserRequest>> violations = validator.validate(request);
+            if (!violations.isEmpty()) {
+                String message = violations.stream()
+                        .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining(", "));
+                results[i] = rejected(i, request, Status.INVALID, message);
+            } else if (!request.password().equals(request.confirmPassword())) {
+                results[i] = rejected(i, request, Status.INVALID, "Passwords do not match");
+            } else if (!emails.add(request.email())) {
+                results[i] = rejected(i, request, Status.DUPLICATE, "Email appears earlier in the upload");
+            } else if (!usernames.add(request.username())) {
+                results[i] = rejected(i, request, Status.DUPLICATE, "Username appears earlier in the upload");
+            } else {
+                accepted.add(i);
+            }
+        }
+        return accepted;
+    }
+
+    private List<Integer> rejectTaken(List<RegisterUserRequest> requests, List<Integer> accepted, BulkUserResult[] results) {
+        Set<String> takenEmails = new HashSet<>();
+        Set<String> takenUsernames = new HashSet<>();
+        for (List<Integer> chunk : chunks(accepted)) {
+            takenEmails.addAll(userRepository.findExistingEmails(
+                    chunk.stream().map(i -> requests.get(i).email()).toList()));
+            takenUsernames.addAll(userRepository.findExistingUsernames(
+                    chunk.stream().map(i -> requests.get(i).username()).toList()));
+        }
+
+        List<Integer> available = new ArrayList<>();
+        for (int i : accepted) {
+            RegisterUserRequest request = requests.get(i);
+            if (takenEmails.contains(request.email())) {
+                results[i] = rejected(i, request, Status.DUPLICATE, "Email is already registered");
+            } else if (takenUsernames.contains(request.username())) {
+                results[i] = rejected(i, request, Status.DUPLICATE, "Username is already taken");
+            } else {
+                available.add(i);
+            }
+        }
+        return available;
+    }
+
+    private List<String> hashPasswords(List<RegisterUserRequest> requests, List<Integer> accepted) {
+        return hashingPool.submit(() -> accepted.parallelStream()
+                        .map(i -> passwordEncoder.encode(requests.get(i).password()))
+                        .toList())
+                .join();
+    }
+
+    private void insert(List<RegisterUserRequest> requests, List<Integer> accepted, List<String> hashes,
+                        BulkUserResult[] results) {
+        for (int from = 0; from < accepted.size(); from += chunkSize) {
+            List<Integer> chunk = accepted.subList(from, Math.min(from + chunkSize, accepted.size()));
+            List<String> chunkHashes = hashes.subList(from, from + chunk.size());
+            try {
+                List<User> users = transactionTemplate.execute(status -> insertChunk(requests, chunk, chunkHashes));
+                for (int j = 0; j < chunk.size(); j++) {
+                    int i = chunk.get(j);
+                    RegisterUserRequest request = requests.get(i);
+                    results[i] = BulkUserResult.created(i + 1, request.email(), request.username(), users.get(j).getUserId());
+                }
+            } catch (DataIntegrityViolationException e) {
+                // someone registered one of the emails or usernames since the check, the chunk was rolled back
+                log.warn("Bulk insert of {} users conflicted with a concurrent registration", chunk.size());
+                for (int i : chunk) {
+                    results[i] = rejected(i, requests.get(i), Status.FAILED,
+                            "Email or username was registered concurrently, retry this row");
+                }
+            }
+        }
+    }
+
+    private List<User> insertChunk(List<RegisterUserRequest> requests, List<Integer> chunk, List<String> hashes) {
+        List<User> users = new ArrayList<>(chunk.size());
+        for (int j = 0; j < chunk.size(); j++) {
+            users.add(userMapper.toUser(requests.get(chunk.get(j)), hashes.get(j), Role.MEMBER));
+        }
+        userRepository.saveAll(users);
+        userRepository.flush();
+        cacheInvalidationBus.publish(EntityChange.usersCreated());
+        return users;
+    }
+
+    private List<List<Integer>> chunks(List<Integer> rows) {
+        List<List<Integer>> chunks = new ArrayList<>();
+        for (int from = 0; from < rows.size(); from += chunkSize) {
+            chunks.add(rows.subList(from, Math.min(from + chunkSize, rows.size())));
+        }
+        return chunks;
+    }
+
+    private static BulkUserResult rejected(int index, RegisterUserRequest request, Status status, String message) {
+        return BulkUserResult.rejected(index + 1, request.email(), request.username(), status, message);
+    }
+
+    private static int requireColumn(List<String> header, String column) {
+        int index = header.indexOf(column);
+        if (index < 0) {
+            throw new InvalidRequestException("CSV header must contain the column " + column);
+        }
+        return index;
+    }
+
+    private static String field(List<String> fields, int index) {
+        return index < fields.size() ? fields.get(index) : "";
+    }
+
+    @PreDestroy
+    void shutdown() {
+        hashingPool.shutdown();
+    }
+}
@@ -1,12 +1,19 @@
 package se.jensen.johanna.socialapp.service;
 
-import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import se.jensen.johanna.socialapp.cache.CacheInvalidationBus;
+import se.jensen.johanna.socialapp.cache.EntityChange;
+import se.jensen.johanna.socialapp.cache.RequestCoalescer;
+import se.jensen.johanna.socialapp.config.CacheConfig;
 import se.jensen.johanna.socialapp.dto.*;
 import se.jensen.johanna.socialapp.dto.admin.RoleRequest;
 import se.jensen.johanna.socialapp.dto.admin.RoleResponse;
@@ -16,6 +23,7 @@ import se.jensen.johanna.socialapp.exception.PasswordMisMatchException;
 import se.jensen.johanna.socialapp.mapper.UserMapper;
 import se.jensen.johanna.socialapp.model.Role;
 import se.jensen.johanna.socialapp.model.User;
+import se.jensen.johanna.socialapp.repository.CommentRepository;
 import se.jensen.johanna.socialapp.repository.UserRepository;
 import se.jensen.johanna.socialapp.service.helper.EntityProvider;
 
@@ -34,34 +42,43 @@ import java.util.List;
 public class UserService {
 
     private final UserRepository userRepository;
+    private final CommentRepository commentRepository;
     private final UserMapper userMapper;
     private final PasswordEncoder passwordEncoder;
     private final EntityProvider entityProvider;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final RequestCoalescer requestCoalescer;
 
 
+    @Transactional(readOnly = true)
     public Page<UserDTO> searchUsers(String username, Pageable pageable) {
-        return userRepository.findByUsernameContainingIgnoreCase(username, pageable).map(userMapper::toUserDTO);
+        return userRepository.searchUserDTOs(username, pageable);
 
     }
 
     /**
      * Registers a new user in the system.
      * Validates credentials, hashes the password, and assigns the default MEMBER role.
+     * Runs outside of a transaction, the checks and the insert borrow a connection each,
+     * so none is held while the password waits for the bounded hasher.
      *
      * @param registerUserRequest the request object containing registration details
+     * @return the saved user
      * @throws PasswordMisMatchException if the password and confirmation-password do not match
      * @throws NotUniqueException        if the email or username is already in use
      */
-    public void registerUser(RegisterUserRequest registerUserRequest) {
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public User registerUser(RegisterUserRequest registerUserRequest) {
         log.info("Trying to register new user with email={}", registerUserRequest.email());
         validateCredentials(registerUserRequest);
 
         String hashedPw = passwordEncoder.encode(registerUserRequest.password());
         User user = userMapper.toUser(registerUserRequest, hashedPw, Role.MEMBER);
         userRepository.save(user);
+        cacheInvalidationBus.publish(EntityChange.usersCreated());
 
         log.info("New user registered with id={} and email={}", user.getUserId(), user.getEmail());
-
+        return user;
     }
 
     /**
@@ -70,6 +87,7 @@ public class UserService {
      * @param userId ID of aiuthenticated user
      * @return {@link MyDTO} A detailed view of the authenticated user
      */
+    @Transactional(readOnly = true)
     public MyDTO getAuthenticatedUser(Long userId) {
         User user = entityProvider.getUserOrThrow(userId);
         return userMapper.toMyDTO(user);
@@ -89,6 +107,7 @@ public class UserService {
         User user = entityProvider.getUserOrThrow(userId);
         userMapper.updateUser(userRequest, user);
         userRepository.save(user);
+        cacheInvalidationBus.publish(EntityChange.user(userId));
 
         log.info("User with id={} updated", userId);
         return userMapper.toUpdateUserResponse(user);
@@ -101,13 +120,27 @@ public class UserService {
      *
      * @return a list of {@link UserListDTO} objects
      */
+    @Transactional(readOnly = true)
     public List<UserListDTO> getAllUsers() {
-        return userRepository.findAll().stream()
-                .map(userMapper::toUserListDTO).toList();
+        return userRepository.findAllUserListDTOs();
 
     }
 
 
+    /**
+     * Entity tag of a user profile, read from its version columns only.
+     *
+     * @param userId the ID of the user
+     * @return the entity tag of the profile
+     * @throws NotFoundException if the user does not exist
+     */
+    @Transactional(readOnly = true)
+    public String getUserETag(Long userId) {
+        return userRepository.findUserVersion(userId)
+                .map(UserVersion::eTag)
+                .orElseThrow(NotFoundException::new);
+    }
+
     /**
      * Finds a specific user by their ID and returns standard user data.
      *
@@ -115,9 +148,25 @@ public class UserService {
      * @return the user details as a {@link UserDTO}
      * @throws NotFoundException if the user does not exist
      */
+    @Cacheable(cacheNames = CacheConfig.USERS, key = "#userId")
+    @Transactional(readOnly = true)
     public UserDTO getUser(Long userId) {
-        return userRepository.findById(userId)
-                .map(userMapper::toUserDTO).orElseThrow(NotFoundException::new);
+        return requestCoalescer.load(CacheConfig.USERS, userId,
+                () -> userRepository.findUserDTOById(userId).orElseThrow(NotFoundException::new));
+    }
+
+    /**
+     * Loads a user profile from the database and replaces the cached one.
+     * For a cached profile older than the version just read, whose eviction has not reached this node yet.
+     *
+     * @param userId the ID of the user to load
+     * @return the user details as a {@link UserDTO}
+     * @throws NotFoundException if the user does not exist
+     */
+    @CachePut(cacheNames = CacheConfig.USERS, key = "#userId")
+    @Transactional(readOnly = true)
+    public UserDTO reloadUser(Long userId) {
+        return userRepository.findUserDTOById(userId).orElseThrow(NotFoundException::new);
     }
 
 
@@ -130,7 +179,10 @@ public class UserService {
     public void deleteUser(Long userId) {
         log.info("Trying to delete user with id={}", userId);
         User userToDelete = entityProvider.getUserOrThrow(userId);
+        // the user's comments and likes disappear from other users' posts
+        commentRepository.bumpCommentsVersionsOfUser(userId);
         userRepository.delete(userToDelete);
+        cacheInvalidationBus.publish(EntityChange.user(userId));
         log.info("User with id={} removed", userId);
     }
 
@@ -143,8 +195,9 @@ public class UserService {
      * @param pageable Paginates list
      * @return {@link AdminUserDTO} a detailed list of users
      */
+    @Transactional(readOnly = true)
     public Page<AdminUserDTO> getAllUsersAdmin(Pageable pageable) {
-        return userRepository.findAll(pageable).map(userMapper::toAdminUserDTO);
+        return userRepository.findAllAdminUserDTOs(pageable);
     }
 
     /**
@@ -163,6 +216,7 @@ public class UserService {
         log.info("Admin role-update initiated for user with email={}", user.getEmail());
         user.setRole(request.role());
         userRepository.save(user);
+        cacheInvalidationBus.publish(EntityChange.user(user.getUserId()));
         return new RoleResponse(user.getEmail(), user.getRole());
     }
 
@@ -180,6 +234,7 @@ public class UserService {
         User user = entityProvider.getUserOrThrow(userId);
         userMapper.updateUser(userRequest, user);
         userRepository.save(user);
+        cacheInvalidationBus.publish(EntityChange.user(userId));
 
         return userMapper.toUpdateUserResponse(user);
 
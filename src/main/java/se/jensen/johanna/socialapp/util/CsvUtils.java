@@ -0,0 +1,74 @@
+package se.jensen.johanna.socialapp.util;
+
+import se.jensen.johanna.socialapp.exception.InvalidRequestException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal CSV parsing for uploads (RFC 4180).
+ * Fields are separated by commas and may be quoted with double quotes; a quoted field can
+ * contain commas, line breaks and doubled quotes ({@code ""}). Empty lines are skipped.
+ */
+public final class CsvUtils {
+
+    private CsvUtils() {
+    }
+
+    /**
+     * Splits CSV text into records of fields.
+     *
+     * @param csv the CSV text
+     * @return one list of fields per non-empty line
+     * @throws InvalidRequestException if a quoted field is not closed
+     */
+    public static List<List<String>> parse(String csv) {
+        List<List<String>> records = new ArrayList<>();
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean recordHasContent = false;
+
+        for (int i = 0; i < csv.length(); i++) {
+            char c = csv.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < csv.length() && csv.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+                recordHasContent = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+                recordHasContent = true;
+            } else if (c == '\n' || c == '\r') {
+                if (c == '\r' && i + 1 < csv.length() && csv.charAt(i + 1) == '\n') {
+                    i++;
+                }
+                if (recordHasContent || !field.isEmpty()) {
+                    fields.add(field.toString());
+                    records.add(fields);
+                }
+                fields = new ArrayList<>();
+                field.setLength(0);
+                recordHasContent = false;
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new InvalidRequestException("Unterminated quoted field in CSV");
+        }
+        if (recordHasContent || !field.isEmpty()) {
+            fields.add(field.toString());
+            records.add(fields);
+        }
+        return records;
+    }
+}
@@ -0,0 +1,61 @@
+package se.jensen.johanna.socialapp.util;
+
+import se.jensen.johanna.socialapp.exception.InvalidRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Utility class for encoding and decoding keyset cursors.
+ * A cursor points at the last row of a slice by its (createdAt, id) pair,
+ * and is sent to the client as an opaque url-safe string.
+ */
+public final class CursorUtils {
+    private static final String SEPARATOR = "_";
+
+    private CursorUtils() {
+    }
+
+    /**
+     * Position of a row in a (createdAt, id) ordered result.
+     *
+     * @param createdAt creation time of the row
+     * @param id        ID of the row, used as tie-breaker
+     */
+    public record Cursor(LocalDateTime createdAt, Long id) {
+    }
+
+    /**
+     * Encodes a position into an opaque cursor string.
+     *
+     * @param createdAt creation time of the last row on the slice
+     * @param id        ID of the last row on the slice
+     * @return url-safe cursor string
+     */
+    public static String encode(LocalDateTime createdAt, Long id) {
+        String raw = createdAt + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor string created by {@link #encode(LocalDateTime, Long)}.
+     *
+     * @param cursor the cursor string from the client
+     * @return the decoded {@link Cursor}
+     * @throws InvalidRequestException if the cursor is malformed
+     */
+    public static Cursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            return new Cursor(
+                    LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.valueOf(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new InvalidRequestException("Invalid cursor.");
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package se.jensen.johanna.socialapp.util;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Utility class for building entity tags from version columns.
+ * An entity tag changes whenever one of its parts changes, so clients can revalidate
+ * a cached response with {@code If-None-Match} instead of downloading it again.
+ */
+public final class ETagUtils {
+    private static final String SEPARATOR = "-";
+
+    private ETagUtils() {
+    }
+
+    /**
+     * Joins the parts into an unquoted entity tag. Timestamps are written as epoch milliseconds
+     * and missing values as 0.
+     *
+     * @param kind  what the tag describes, keeps tags of different resources apart
+     * @param parts IDs, counters and timestamps the response is rendered from
+     * @return the entity tag value
+     */
+    public static String of(String kind, Object... parts) {
+        return kind + SEPARATOR + Arrays.stream(parts)
+                .map(ETagUtils::format)
+                .collect(Collectors.joining(SEPARATOR));
+    }
+
+    private static String format(Object part) {
+        if (part == null) {
+            return "0";
+        }
+        if (part instanceof LocalDateTime time) {
+            return String.valueOf(time.toInstant(ZoneOffset.UTC).toEpochMilli());
+        }
+        return part.toString();
+    }
+}
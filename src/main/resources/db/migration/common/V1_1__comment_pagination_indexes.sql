@@ -0,0 +1,3 @@
+-- Keyset pagination of main comments per post and of replies per parent, oldest first
+create index if not exists idx_comments_post_parent_created on comments (post_id, parent_id, created_at);
+create index if not exists idx_comments_parent_created on comments (parent_id, created_at);
@@ -0,0 +1,15 @@
+-- Denormalized like and reply counters and the ranking score of sort=top, see Comment.
+alter table comments add column if not exists like_count integer default 0 not null;
+alter table comments add column if not exists reply_count integer default 0 not null;
+alter table comments add column if not exists score float(53) default 0 not null;
+
+-- Existing comments: the counters are adjusted incrementally from now on, so they must start out right
+update comments c set
+    like_count = (select count(*) from comment_likes l where l.comment_id = c.comment_id),
+    reply_count = (select count(*) from comments r where r.parent_id = c.comment_id);
+
+-- Creation time in units of Comment.SCORE_DECAY_SECONDS plus ln(1 + likes + Comment.REPLY_WEIGHT * replies)
+update comments set
+    score = extract(epoch from coalesce(created_at, localtimestamp)) / 45000 + ln(1 + like_count + 2 * reply_count);
+
+create index if not exists idx_comments_post_parent_score on comments (post_id, parent_id, score, comment_id);
@@ -0,0 +1,2 @@
+-- Last profile change, part of the entity tag of user and post responses
+alter table users add column if not exists updated_at timestamp(6);
@@ -0,0 +1,79 @@
+-- Schema as previously created by Hibernate (ddl-auto=update), with IDENTITY columns.
+-- Existing databases are baselined at this version and start with V1_1.
+
+create table users (
+    user_id bigint generated by default as identity,
+    profile_image_path varchar(1000),
+    bio varchar(255),
+    email varchar(255) not null unique,
+    password varchar(255) not null,
+    role varchar(255) not null check (role in ('MEMBER','ADMIN')),
+    username varchar(255) not null unique,
+    primary key (user_id)
+);
+
+create table posts (
+    created_at timestamp(6),
+    post_id bigint generated by default as identity,
+    updated_at timestamp(6),
+    user_id bigint not null,
+    text varchar(255) not null,
+    primary key (post_id)
+);
+
+create table comments (
+    comment_id bigint generated by default as identity,
+    created_at timestamp(6),
+    parent_id bigint,
+    post_id bigint not null,
+    updated_at timestamp(6),
+    user_id bigint not null,
+    text varchar(255) not null,
+    primary key (comment_id)
+);
+
+create table comment_likes (
+    comment_id bigint,
+    comment_like_id bigint generated by default as identity,
+    user_id bigint,
+    primary key (comment_like_id),
+    unique (comment_id, user_id)
+);
+
+create table post_likes (
+    post_id bigint,
+    post_like_id bigint generated by default as identity,
+    user_id bigint,
+    primary key (post_like_id),
+    unique (post_id, user_id)
+);
+
+create table friendships (
+    accepted_at timestamp(6),
+    friendship_id bigint generated by default as identity,
+    receiver_id bigint,
+    sender_id bigint,
+    status varchar(255) check (status in ('PENDING','ACCEPTED','REJECTED','CANCELLED')),
+    primary key (friendship_id),
+    unique (sender_id, receiver_id)
+);
+
+create table refresh_tokens (
+    expiry_date timestamp(6) with time zone not null,
+    refresh_token_id bigint generated by default as identity,
+    user_id bigint unique,
+    token varchar(255) not null unique,
+    primary key (refresh_token_id)
+);
+
+alter table if exists comment_likes add constraint FK3wa5u7bs1p1o9hmavtgdgk1go foreign key (comment_id) references comments;
+alter table if exists comment_likes add constraint FK6h3lbneryl5pyb9ykaju7werx foreign key (user_id) references users;
+alter table if exists comments add constraint FKlri30okf66phtcgbe5pok7cc0 foreign key (parent_id) references comments;
+alter table if exists comments add constraint FKh4c7lvsc298whoyd4w9ta25cr foreign key (post_id) references posts;
+alter table if exists comments add constraint FK8omq0tc18jd43bu5tjh6jvraq foreign key (user_id) references users;
+alter table if exists friendships add constraint FKpk7w2cj6m9n224ny2t7fhi47 foreign key (receiver_id) references users;
+alter table if exists friendships add constraint FKs7n4v837jm41ijdacqgfe9acw foreign key (sender_id) references users;
+alter table if exists post_likes add constraint FKa5wxsgl4doibhbed9gm7ikie2 foreign key (post_id) references posts;
+alter table if exists post_likes add constraint FKkgau5n0nlewg6o9lr4yibqgxj foreign key (user_id) references users;
+alter table if exists posts add constraint FK5lidm6cqbc7u4xhqpxm898qme foreign key (user_id) references users;
+alter table if exists refresh_tokens add constraint FK1lih5y2npsf8u5o3vhdb9y0os foreign key (user_id) references users;
@@ -0,0 +1,10 @@
+-- IDs are allocated from sequences in blocks of 50 (allocationSize of the entities).
+-- "if not exists" because databases updated by Hibernate may already have them.
+
+create sequence if not exists users_seq start with 1 increment by 50;
+create sequence if not exists posts_seq start with 1 increment by 50;
+create sequence if not exists comments_seq start with 1 increment by 50;
+create sequence if not exists post_likes_seq start with 1 increment by 50;
+create sequence if not exists comment_likes_seq start with 1 increment by 50;
+create sequence if not exists friendships_seq start with 1 increment by 50;
+create sequence if not exists refresh_tokens_seq start with 1 increment by 50;
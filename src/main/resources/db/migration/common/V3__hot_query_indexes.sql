@@ -0,0 +1,16 @@
+-- Indexes for the filters and sort orders of the main read queries.
+-- Already covered by unique constraints: post_likes (post_id, user_id), comment_likes (comment_id, user_id)
+-- and friendships (sender_id, receiver_id). Comments are covered by the indexes in V1_1 and V1_2.
+
+-- GET /posts, newest first
+create index if not exists idx_posts_created on posts (created_at desc, post_id desc);
+
+-- GET /users/{userId}/posts, and the posts.user_id foreign key
+create index if not exists idx_posts_user_created on posts (user_id, created_at desc);
+
+-- Friend lists and requests: (sender_id = ? OR receiver_id = ?) AND status = ?
+create index if not exists idx_friendships_sender_status on friendships (sender_id, status);
+create index if not exists idx_friendships_receiver_status on friendships (receiver_id, status);
+
+-- comments.user_id foreign key, checked when a user is deleted
+create index if not exists idx_comments_user on comments (user_id);
@@ -0,0 +1,9 @@
+-- Tokens that could not be hashed above (other databases) are dropped, those users log in again.
+delete from refresh_tokens where token_hash is null;
+
+alter table refresh_tokens drop column token;
+alter table refresh_tokens alter column token_hash set not null;
+alter table refresh_tokens add constraint uk_refresh_tokens_token_hash unique (token_hash);
+
+-- One token per user, the key of the upsert on login
+alter table refresh_tokens alter column user_id set not null;
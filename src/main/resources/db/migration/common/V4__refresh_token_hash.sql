@@ -0,0 +1,2 @@
+-- Refresh tokens are stored as SHA-256 hashes (hex) instead of in plain text.
+alter table refresh_tokens add column token_hash varchar(64);
@@ -0,0 +1,2 @@
+-- Lets the purge job find expired refresh tokens without scanning the table
+create index if not exists idx_refresh_tokens_expiry on refresh_tokens (expiry_date);
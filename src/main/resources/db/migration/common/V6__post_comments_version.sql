@@ -0,0 +1,3 @@
+-- Version of a post's comments and comment likes, bumped with every write to them and used as the
+-- entity tag of the comment pages. Not mapped on Post, so bumping it keeps cached posts.
+alter table posts add column if not exists comments_version bigint default 0 not null;
@@ -0,0 +1,45 @@
+-- Moves each sequence past the rows inserted while IDs came from IDENTITY columns,
+-- but never back before a block another node may already have allocated.
+-- The IDENTITY defaults are dropped so no insert can bypass the sequences.
+
+alter table users alter column user_id drop identity if exists;
+select setval('users_seq', greatest(
+        (select coalesce(max(user_id), 0) + 1 from users),
+        (select coalesce(last_value + increment_by, start_value) from pg_sequences
+         where schemaname = current_schema() and sequencename = 'users_seq')), false);
+
+alter table posts alter column post_id drop identity if exists;
+select setval('posts_seq', greatest(
+        (select coalesce(max(post_id), 0) + 1 from posts),
+        (select coalesce(last_value + increment_by, start_value) from pg_sequences
+         where schemaname = current_schema() and sequencename = 'posts_seq')), false);
+
+alter table comments alter column comment_id drop identity if exists;
+select setval('comments_seq', greatest(
+        (select coalesce(max(comment_id), 0) + 1 from comments),
+        (select coalesce(last_value + increment_by, start_value) from pg_sequences
+         where schemaname = current_schema() and sequencename = 'comments_seq')), false);
+
+alter table post_likes alter column post_like_id drop identity if exists;
+select setval('post_likes_seq', greatest(
+        (select coalesce(max(post_like_id), 0) + 1 from post_likes),
+        (select coalesce(last_value + increment_by, start_value) from pg_sequences
+         where schemaname = current_schema() and sequencename = 'post_likes_seq')), false);
+
+alter table comment_likes alter column comment_like_id drop identity if exists;
+select setval('comment_likes_seq', greatest(
+        (select coalesce(max(comment_like_id), 0) + 1 from comment_likes),
+        (select coalesce(last_value + increment_by, start_value) from pg_sequences
+         where schemaname = current_schema() and sequencename = 'comment_likes_seq')), false);
+
+alter table friendships alter column friendship_id drop identity if exists;
+select setval('friendships_seq', greatest(
+        (select coalesce(max(friendship_id), 0) + 1 from friendships),
+        (select coalesce(last_value + increment_by, start_value) from pg_sequences
+         where schemaname = current_schema() and sequencename = 'friendships_seq')), false);
+
+alter table refresh_tokens alter column refresh_token_id drop identity if exists;
+select setval('refresh_tokens_seq', greatest(
+        (select coalesce(max(refresh_token_id), 0) + 1 from refresh_tokens),
+        (select coalesce(last_value + increment_by, start_value) from pg_sequences
+         where schemaname = current_schema() and sequencename = 'refresh_tokens_seq')), false);
@@ -0,0 +1,2 @@
+-- Keeps existing sessions valid: the hash of each plain token, as computed by RefreshTokenService.
+update refresh_tokens set token_hash = encode(sha256(convert_to(token, 'UTF8')), 'hex');
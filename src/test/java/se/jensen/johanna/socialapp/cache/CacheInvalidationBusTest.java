@@ -0,0 +1,139 @@
+package se.jensen.johanna.socialapp.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CacheInvalidationBusTest {
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private InvalidationNotifier notifier;
+    @Mock
+    private ObjectProvider<InvalidationNotifier> notifierProvider;
+
+    private CacheInvalidationBus bus;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(notifierProvider.getIfAvailable()).thenReturn(notifier);
+        bus = new CacheInvalidationBus(eventPublisher, notifierProvider);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("Changes in one transaction are sent as one notification before commit and evicted after commit")
+    void publish_ShouldBatchChangesPerTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+        bus.publish(EntityChange.post(1L));
+        bus.publish(EntityChange.user(2L), EntityChange.post(1L));
+        verifyNoInteractions(notifier, eventPublisher);
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.beforeCommit(false);
+            synchronization.afterCommit();
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+
+        ArgumentCaptor<String> payload = ArgumentCaptor.forClass(String.class);
+        verify(notifier, times(1)).send(payload.capture());
+        assertTrue(payload.getValue().endsWith("|POST:1,USER:2"));
+        verify(eventPublisher).publishEvent(EntityChangedEvent.of(Set.of(EntityChange.post(1L), EntityChange.user(2L))));
+    }
+
+    @Test
+    @DisplayName("Nothing is sent or evicted when the transaction rolls back")
+    void publish_ShouldDoNothing_WhenRolledBack() {
+        TransactionSynchronizationManager.initSynchronization();
+        bus.publish(EntityChange.post(1L));
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+
+        verifyNoInteractions(notifier, eventPublisher);
+    }
+
+    @Test
+    @DisplayName("Notifications from other nodes are evicted, the node's own are ignored")
+    void receive_ShouldIgnoreOwnNotifications() {
+        bus.publish(EntityChange.friends(3L));
+        ArgumentCaptor<String> payload = ArgumentCaptor.forClass(String.class);
+        verify(notifier).send(payload.capture());
+        clearInvocations(eventPublisher);
+
+        bus.receive(payload.getValue());
+        verifyNoInteractions(eventPublisher);
+
+        bus.receive("other-node|FRIENDS:3,POST:4");
+        verify(eventPublisher).publishEvent(
+                EntityChangedEvent.of(Set.of(EntityChange.friends(3L), EntityChange.post(4L))));
+    }
+
+    @Test
+    @DisplayName("Flush and malformed notifications clear all local caches")
+    void receive_ShouldFlushAll_WhenFlushOrMalformed() {
+        bus.receive("other-node|*");
+        bus.receive("other-node|NOPE:x");
+
+        verify(eventPublisher, times(2)).publishEvent(EntityChangedEvent.all());
+    }
+
+    @Test
+    @DisplayName("Oversized batches are sent as a full flush")
+    void publish_ShouldSendFlush_WhenPayloadTooLarge() {
+        EntityChange[] changes = new EntityChange[1000];
+        for (int i = 0; i < changes.length; i++) {
+            changes[i] = EntityChange.post((long) i);
+        }
+
+        bus.publish(changes);
+
+        ArgumentCaptor<String> payload = ArgumentCaptor.forClass(String.class);
+        verify(notifier).send(payload.capture());
+        assertTrue(payload.getValue().endsWith("|*"));
+        verify(eventPublisher).publishEvent(any(EntityChangedEvent.class));
+    }
+
+    @Test
+    @DisplayName("Token revocations are sent right away and applied on the other nodes")
+    void publishRevocation_ShouldReachOtherNodes() {
+        Instant expiresAt = Instant.ofEpochSecond(1_900_000_000L);
+        TransactionSynchronizationManager.initSynchronization();
+
+        bus.publishRevocation("a+b/c=", expiresAt);
+
+        ArgumentCaptor<String> payload = ArgumentCaptor.forClass(String.class);
+        verify(notifier).send(payload.capture());
+        assertTrue(payload.getValue().endsWith("|revoked:a+b/c=:1900000000"));
+        bus.receive(payload.getValue());
+        verifyNoInteractions(eventPublisher);
+
+        bus.receive(payload.getValue().replaceFirst("^[^|]*", "other-node"));
+        verify(eventPublisher).publishEvent(new TokenRevokedEvent("a+b/c=", expiresAt));
+    }
+}
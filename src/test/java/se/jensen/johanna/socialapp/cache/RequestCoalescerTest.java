@@ -0,0 +1,118 @@
+package se.jensen.johanna.socialapp.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import se.jensen.johanna.socialapp.exception.NotFoundException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestCoalescerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RequestCoalescer coalescer = new RequestCoalescer(meterRegistry);
+
+    @Test
+    @DisplayName("Concurrent identical loads should run the loader once and share the result")
+    void load_ShouldShareInFlightLoad() throws Exception {
+        int callers = 8;
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> coalescer.load("posts", 1L, () -> {
+                    loads.incrementAndGet();
+                    await(release);
+                    return "post";
+                })));
+            }
+            waitForCoalesced(callers - 1);
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertEquals("post", result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(1, count("loaded"));
+        assertEquals(callers - 1, count("coalesced"));
+    }
+
+    @Test
+    @DisplayName("Joined callers should receive the exception of the shared load")
+    void load_ShouldPropagateException_ToJoinedCallers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Object> leader = executor.submit(() -> coalescer.load("posts", 1L, () -> {
+                await(release);
+                throw new NotFoundException("Post with id 1 not found.");
+            }));
+            waitForLoaded();
+            Future<Object> joiner = executor.submit(() -> coalescer.load("posts", 1L, () -> "unused"));
+            waitForCoalesced(1);
+            release.countDown();
+
+            Exception leaderError = assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS));
+            Exception joinerError = assertThrows(Exception.class, () -> joiner.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(NotFoundException.class, leaderError.getCause());
+            assertInstanceOf(NotFoundException.class, joinerError.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Sequential loads should not be coalesced")
+    void load_ShouldLoadAgain_AfterCompletion() {
+        AtomicInteger loads = new AtomicInteger();
+
+        coalescer.load("users", 1L, loads::incrementAndGet);
+        coalescer.load("users", 1L, loads::incrementAndGet);
+        coalescer.load("users", 2L, loads::incrementAndGet);
+
+        assertEquals(3, loads.get());
+        assertEquals(0, count("coalesced"));
+    }
+
+    private double count(String outcome) {
+        var counter = meterRegistry.find("coalescer.requests").tag("outcome", outcome).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private void waitForLoaded() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (count("loaded") < 1 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private void waitForCoalesced(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (count("coalesced") < expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
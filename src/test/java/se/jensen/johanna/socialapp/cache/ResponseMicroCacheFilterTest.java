@@ -0,0 +1,143 @@
+package se.jensen.johanna.socialapp.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseMicroCacheFilterTest {
+
+    private ResponseMicroCache responseMicroCache;
+    private ResponseMicroCacheFilter filter;
+    private final AtomicInteger rendered = new AtomicInteger();
+    private String body = "{\"postId\":1}";
+
+    @BeforeEach
+    void setUp() {
+        responseMicroCache = new ResponseMicroCache(100, Duration.ofMinutes(1), new SimpleMeterRegistry());
+        filter = new ResponseMicroCacheFilter(responseMicroCache);
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("user", null, "MEMBER"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @DisplayName("Should serve the first page of posts from cache until a post changes")
+    void posts_ShouldBeServedFromCache_UntilPostChanges() throws Exception {
+        MockHttpServletResponse first = get("/posts", null);
+        MockHttpServletResponse second = get("/posts", null);
+
+        assertEquals(1, rendered.get());
+        assertEquals(first.getContentAsString(), second.getContentAsString());
+        assertEquals(MediaType.APPLICATION_JSON_VALUE, second.getContentType());
+
+        responseMicroCache.onEntityChanged(EntityChangedEvent.of(Set.of(EntityChange.post(1L))));
+        get("/posts", null);
+
+        assertEquals(2, rendered.get());
+    }
+
+    @Test
+    @DisplayName("Should evict a user's profile when the user changes, and keep other profiles")
+    void users_ShouldBeEvicted_WhenUserChanges() throws Exception {
+        get("/users/1", null);
+        get("/users/2", null);
+
+        responseMicroCache.onEntityChanged(EntityChangedEvent.of(Set.of(EntityChange.user(1L))));
+        get("/users/1", null);
+        get("/users/2", null);
+
+        assertEquals(3, rendered.get());
+    }
+
+    @Test
+    @DisplayName("Should not cache later pages or other endpoints")
+    void shouldNotCache_OtherRequests() throws Exception {
+        get("/posts", "page=1");
+        get("/posts", "page=1");
+        get("/users/search", "q=a");
+        get("/users/search", "q=a");
+
+        assertEquals(4, rendered.get());
+    }
+
+    @Test
+    @DisplayName("Should serve precompressed gzip to clients that accept it")
+    void shouldServeGzip_WhenAccepted() throws Exception {
+        body = "{\"text\":\"" + "a".repeat(2000) + "\"}";
+        get("/posts", null);
+
+        MockHttpServletRequest request = request("/posts", null);
+        request.addHeader("Accept-Encoding", "gzip, deflate");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, (req, res) -> rendered.incrementAndGet());
+
+        assertEquals(1, rendered.get());
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            assertEquals(body, new String(gzip.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    @DisplayName("Should answer If-None-Match from the cached ETag")
+    void shouldAnswerNotModified_FromCache() throws Exception {
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        filter.doFilter(request("/users/1", null), first, (req, res) -> {
+            rendered.incrementAndGet();
+            ((HttpServletResponse) res).setHeader("ETag", "\"user-1-0\"");
+            res.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            res.getOutputStream().write(body.getBytes(StandardCharsets.UTF_8));
+        });
+
+        MockHttpServletRequest conditional = request("/users/1", null);
+        conditional.addHeader("If-None-Match", "\"user-1-0\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(conditional, response, (req, res) -> rendered.incrementAndGet());
+
+        assertEquals(1, rendered.get());
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentLength());
+    }
+
+    private MockHttpServletResponse get(String path, String query) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request(path, query), response, (req, res) -> {
+            rendered.incrementAndGet();
+            res.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            res.getOutputStream().write(body.getBytes(StandardCharsets.UTF_8));
+        });
+        return response;
+    }
+
+    private MockHttpServletRequest request(String path, String query) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setQueryString(query);
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                String[] nameValue = parameter.split("=", 2);
+                request.addParameter(nameValue[0], nameValue[1]);
+            }
+        }
+        return request;
+    }
+}
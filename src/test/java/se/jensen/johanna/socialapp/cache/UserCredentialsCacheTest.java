@@ -0,0 +1,82 @@
+package se.jensen.johanna.socialapp.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import se.jensen.johanna.socialapp.model.Role;
+import se.jensen.johanna.socialapp.security.UserCredentials;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class UserCredentialsCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final UserCredentialsCache cache = new UserCredentialsCache(100, Duration.ofMinutes(5), meterRegistry);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    @DisplayName("Credentials are loaded once and then served from the cache")
+    void get_ShouldLoadOnce() {
+        cache.get("anna", this::load);
+        cache.get("anna", this::load);
+
+        assertEquals(1, loads.get());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "credentials").tag("result", "hit")
+                .functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("A change of the user removes the entry by user id, other users stay cached")
+    void onEntityChanged_ShouldEvictChangedUser() {
+        cache.get("anna", this::load);
+        cache.get("bert", this::load);
+
+        cache.onEntityChanged(EntityChangedEvent.of(Set.of(EntityChange.user(1L))));
+        cache.get("anna", this::load);
+        cache.get("bert", this::load);
+
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    @DisplayName("All users changed in one event are removed, new users and other changes remove nothing")
+    void onEntityChanged_ShouldEvictAllChangedUsersOfEvent() {
+        cache.get("anna", this::load);
+        cache.get("bert", this::load);
+        cache.get("carl", this::load);
+
+        cache.onEntityChanged(EntityChangedEvent.of(Set.of(EntityChange.usersCreated(), EntityChange.post(1L))));
+        cache.onEntityChanged(EntityChangedEvent.of(Set.of(EntityChange.user(1L), EntityChange.user(2L))));
+        cache.get("anna", this::load);
+        cache.get("bert", this::load);
+        cache.get("carl", this::load);
+
+        assertEquals(5, loads.get());
+    }
+
+    @Test
+    @DisplayName("Credentials loaded while the user changed are returned but not cached")
+    void get_ShouldNotCacheCredentialsLoadedDuringChange() {
+        cache.get("anna", username -> {
+            cache.evict(username);
+            return load(username);
+        });
+        cache.get("anna", this::load);
+
+        assertEquals(2, loads.get());
+    }
+
+    private UserCredentials load(String username) {
+        loads.incrementAndGet();
+        long userId = switch (username) {
+            case "anna" -> 1L;
+            case "bert" -> 2L;
+            default -> 3L;
+        };
+        return new UserCredentials(userId, username, "hash", Role.MEMBER);
+    }
+}
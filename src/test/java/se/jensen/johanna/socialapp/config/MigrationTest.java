@@ -0,0 +1,67 @@
+package se.jensen.johanna.socialapp.config;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import se.jensen.johanna.socialapp.model.Comment;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Upgrades a database in the state before the migrations were introduced, as production is baselined.
+ */
+class MigrationTest {
+
+    private DataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:migration-test;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    @DisplayName("Counters and scores of existing comments are filled from their likes and replies")
+    void migrate_ShouldBackfillCommentCounters() {
+        flyway("1").migrate();
+        LocalDateTime createdAt = LocalDateTime.of(2025, 1, 1, 12, 0);
+        jdbcTemplate.update("INSERT INTO users (user_id, email, password, role, username) VALUES "
+                + "(1, 'a@b.se', 'x', 'MEMBER', 'anna'), (2, 'b@b.se', 'x', 'MEMBER', 'bert')");
+        jdbcTemplate.update("INSERT INTO posts (post_id, user_id, text, created_at) VALUES (1, 1, 'post', ?)", createdAt);
+        jdbcTemplate.update("INSERT INTO comments (comment_id, post_id, user_id, text, created_at) VALUES "
+                + "(1, 1, 1, 'main', ?), (2, 1, 2, 'other', ?)", createdAt, createdAt);
+        jdbcTemplate.update("INSERT INTO comments (comment_id, post_id, user_id, parent_id, text, created_at) VALUES "
+                + "(3, 1, 2, 1, 'reply', ?)", createdAt);
+        jdbcTemplate.update("INSERT INTO comment_likes (comment_like_id, comment_id, user_id) VALUES (1, 1, 1), (2, 1, 2)");
+
+        flyway(null).migrate();
+
+        Map<String, Object> main = jdbcTemplate.queryForMap(
+                "SELECT like_count, reply_count, score FROM comments WHERE comment_id = 1");
+        assertEquals(2, main.get("LIKE_COUNT"));
+        assertEquals(1, main.get("REPLY_COUNT"));
+        double age = createdAt.toEpochSecond(ZoneOffset.UTC) / Comment.SCORE_DECAY_SECONDS;
+        assertEquals(age + Math.log(1 + 2 + Comment.REPLY_WEIGHT), (double) main.get("SCORE"), 1e-9);
+        assertEquals(age, jdbcTemplate.queryForObject("SELECT score FROM comments WHERE comment_id = 2", Double.class), 1e-9);
+    }
+
+    private Flyway flyway(String target) {
+        var configuration = Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:db/migration/common");
+        if (target != null) {
+            configuration.target(target);
+        }
+        return configuration.load();
+    }
+}
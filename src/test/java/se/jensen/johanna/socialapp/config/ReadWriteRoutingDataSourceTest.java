@@ -0,0 +1,139 @@
+package se.jensen.johanna.socialapp.config;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.Cookie;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Uses two in-memory H2 databases as stand-ins for the primary and the replica.
+ */
+class ReadWriteRoutingDataSourceTest {
+
+    private TransactionTemplate readOnly;
+    private TransactionTemplate readWrite;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        DataSource dataSource = DataSourceConfig.routingDataSource(database("primary"), database("replica"));
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReadWriteRoutingDataSource.clearForcePrimary();
+    }
+
+    @Test
+    @DisplayName("Read-only transactions run against the replica")
+    void readOnlyTransaction_ShouldUseReplica() {
+        assertEquals("replica", readOnly.execute(status -> currentDatabase()));
+    }
+
+    @Test
+    @DisplayName("Read-write transactions run against the primary")
+    void readWriteTransaction_ShouldUsePrimary() {
+        assertEquals("primary", readWrite.execute(status -> currentDatabase()));
+    }
+
+    @Test
+    @DisplayName("GET /my after a write by the same user reads from the primary, on any node")
+    void myEndpoint_ShouldReadFromPrimary_AfterOwnWrite() {
+        ReadYourWritesInterceptor nodeA = new ReadYourWritesInterceptor(60_000, true, "Strict");
+        ReadYourWritesInterceptor nodeB = new ReadYourWritesInterceptor(60_000, true, "Strict");
+        MockHttpServletResponse writeResponse = new MockHttpServletResponse();
+        nodeA.preHandle(request("POST", "/posts", "alice"), writeResponse, null);
+        nodeA.afterCompletion(request("POST", "/posts", "alice"), writeResponse, null, null);
+        Cookie lastWrite = writeResponse.getCookie(ReadYourWritesInterceptor.LAST_WRITE_COOKIE);
+        assertEquals("/my", lastWrite.getPath());
+
+        MockHttpServletRequest myPosts = request("GET", "/my/posts", "alice");
+        myPosts.setCookies(lastWrite);
+        nodeB.preHandle(myPosts, new MockHttpServletResponse(), null);
+        assertEquals("primary", readOnly.execute(status -> currentDatabase()));
+        nodeB.afterCompletion(myPosts, new MockHttpServletResponse(), null, null);
+
+        nodeB.preHandle(request("GET", "/my/posts", "bob"), new MockHttpServletResponse(), null);
+        assertEquals("replica", readOnly.execute(status -> currentDatabase()));
+        nodeB.afterCompletion(request("GET", "/my/posts", "bob"), new MockHttpServletResponse(), null, null);
+
+        MockHttpServletRequest stale = request("GET", "/my/posts", "alice");
+        stale.setCookies(new Cookie(ReadYourWritesInterceptor.LAST_WRITE_COOKIE,
+                String.valueOf(System.currentTimeMillis() - 120_000)));
+        nodeB.preHandle(stale, new MockHttpServletResponse(), null);
+        assertEquals("replica", readOnly.execute(status -> currentDatabase()));
+        nodeB.afterCompletion(stale, new MockHttpServletResponse(), null, null);
+    }
+
+    @Test
+    @DisplayName("Time a request holds connections is recorded per URI pattern")
+    void connectionHoldTime_ShouldBeRecordedPerRequest() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ConnectionHoldInterceptor interceptor = new ConnectionHoldInterceptor(meterRegistry);
+        MockHttpServletRequest request = request("GET", "/posts/1", "alice");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/posts/{postId}");
+
+        interceptor.preHandle(request, new MockHttpServletResponse(), null);
+        readOnly.execute(status -> {
+            currentDatabase();
+            sleep(20);
+            return null;
+        });
+        sleep(100);
+        interceptor.afterCompletion(request, new MockHttpServletResponse(), null, null);
+
+        Timer timer = meterRegistry.get("http.server.requests.connection.hold").tag("uri", "/posts/{postId}").timer();
+        assertEquals(1, timer.count());
+        double heldMs = timer.totalTime(TimeUnit.MILLISECONDS);
+        assertTrue(heldMs >= 20 && heldMs < 100, "held " + heldMs + " ms");
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private String currentDatabase() {
+        return jdbcTemplate.queryForObject("SELECT name FROM node", String.class);
+    }
+
+    private DataSource database(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:routing_" + name + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate setup = new JdbcTemplate(dataSource);
+        setup.execute("CREATE TABLE IF NOT EXISTS node (name VARCHAR(20))");
+        setup.update("DELETE FROM node");
+        setup.update("INSERT INTO node (name) VALUES (?)", name);
+        return dataSource;
+    }
+
+    private MockHttpServletRequest request(String method, String path, String username) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setUserPrincipal(() -> username);
+        return request;
+    }
+}
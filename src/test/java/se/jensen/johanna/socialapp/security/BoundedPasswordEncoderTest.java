@@ -0,0 +1,109 @@
+package se.jensen.johanna.socialapp.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import se.jensen.johanna.socialapp.exception.ServiceBusyException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedPasswordEncoderTest {
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final ExecutorService callers = Executors.newFixedThreadPool(2);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private BoundedPasswordEncoder encoder;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        callers.shutdownNow();
+        encoder.destroy();
+    }
+
+    @Test
+    @DisplayName("Hashes on the pool and returns the delegate's result")
+    void encodeAndMatches_ShouldDelegate() {
+        encoder = new BoundedPasswordEncoder(new PlainEncoder(), 1, 1, 1, registry);
+
+        assertEquals("hash:secret", encoder.encode("secret"));
+        assertTrue(encoder.matches("secret", "hash:secret"));
+        assertFalse(encoder.matches("wrong", "hash:secret"));
+    }
+
+    @Test
+    @DisplayName("Rejects with ServiceBusyException once all threads are busy and the queue is full")
+    void encode_ShouldShedLoadWhenSaturated() throws Exception {
+        encoder = new BoundedPasswordEncoder(new BlockingEncoder(), 1, 1, 3, registry);
+
+        Future<String> running = callers.submit(() -> encoder.encode("first"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<String> queued = callers.submit(() -> encoder.encode("second"));
+        waitForQueued();
+
+        ServiceBusyException e = assertThrows(ServiceBusyException.class, () -> encoder.encode("third"));
+        assertEquals(3, e.getRetryAfterSeconds());
+
+        release.countDown();
+        assertEquals("hash:first", running.get(5, TimeUnit.SECONDS));
+        assertEquals("hash:second", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("Exceptions from the delegate reach the caller unchanged")
+    void encode_ShouldRethrowDelegateException() {
+        encoder = new BoundedPasswordEncoder(new PlainEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                throw new IllegalArgumentException("too long");
+            }
+        }, 1, 1, 1, registry);
+
+        assertThrows(IllegalArgumentException.class, () -> encoder.encode("secret"));
+    }
+
+    private void waitForQueued() throws InterruptedException {
+        // the second caller only enqueues, so poll the executor metrics instead of a latch
+        for (int i = 0; i < 500 && queued() == 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, queued());
+    }
+
+    private double queued() {
+        return registry.get("executor.queued").tag("name", "password.hashing").gauge().value();
+    }
+
+    private static class PlainEncoder implements PasswordEncoder {
+        @Override
+        public String encode(CharSequence rawPassword) {
+            return "hash:" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encode(rawPassword).equals(encodedPassword);
+        }
+    }
+
+    private class BlockingEncoder extends PlainEncoder {
+        @Override
+        public String encode(CharSequence rawPassword) {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.encode(rawPassword);
+        }
+    }
+}
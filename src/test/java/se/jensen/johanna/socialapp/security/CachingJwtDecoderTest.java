@@ -0,0 +1,108 @@
+package se.jensen.johanna.socialapp.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import se.jensen.johanna.socialapp.cache.TokenRevokedEvent;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class CachingJwtDecoderTest {
+
+    private final JwtDecoder delegate = mock(JwtDecoder.class);
+    private final CachingJwtDecoder decoder = new CachingJwtDecoder(delegate, 100, new SimpleMeterRegistry());
+
+    @Test
+    @DisplayName("A token is verified once and then served from the cache until it expires")
+    void decode_ShouldVerifyTokenOnce() {
+        Jwt jwt = jwt(Instant.now().plus(Duration.ofMinutes(15)));
+        when(delegate.decode("token-a")).thenReturn(jwt);
+
+        assertSame(jwt, decoder.decode("token-a"));
+        assertSame(jwt, decoder.decode("token-a"));
+
+        verify(delegate, times(1)).decode("token-a");
+    }
+
+    @Test
+    @DisplayName("Expired tokens and tokens failing verification are verified on every request")
+    void decode_ShouldNotCacheExpiredOrInvalidTokens() {
+        when(delegate.decode("expired")).thenReturn(jwt(Instant.now().minusSeconds(1)));
+        when(delegate.decode("invalid")).thenThrow(new BadJwtException("bad signature"));
+
+        decoder.decode("expired");
+        decoder.decode("expired");
+        assertThrows(BadJwtException.class, () -> decoder.decode("invalid"));
+        assertThrows(BadJwtException.class, () -> decoder.decode("invalid"));
+
+        verify(delegate, times(2)).decode("expired");
+        verify(delegate, times(2)).decode("invalid");
+    }
+
+    @Test
+    @DisplayName("A revoked token is rejected, other tokens are not affected")
+    void revoke_ShouldRejectToken() {
+        when(delegate.decode("token-a")).thenReturn(jwt(Instant.now().plus(Duration.ofMinutes(15))));
+        Jwt other = jwt(Instant.now().plus(Duration.ofMinutes(15)));
+        when(delegate.decode("token-b")).thenReturn(other);
+        decoder.decode("token-a");
+
+        decoder.revoke("token-a");
+
+        assertThrows(BadJwtException.class, () -> decoder.decode("token-a"));
+        assertSame(other, decoder.decode("token-b"));
+    }
+
+    @Test
+    @DisplayName("A revocation is published for the other nodes, and their revocations are applied here")
+    void revoke_ShouldReachOtherNodes() {
+        List<TokenRevokedEvent> published = new ArrayList<>();
+        CachingJwtDecoder nodeA = new CachingJwtDecoder(delegate, 100, new SimpleMeterRegistry(),
+                (tokenKey, expiresAt) -> published.add(new TokenRevokedEvent(tokenKey, expiresAt)));
+        Instant expiresAt = Instant.now().plus(Duration.ofMinutes(15));
+        when(delegate.decode("token-a")).thenReturn(jwt(expiresAt));
+        decoder.decode("token-a");
+
+        nodeA.revoke("token-a");
+        assertEquals(1, published.size());
+        assertEquals(expiresAt, published.get(0).expiresAt());
+        decoder.onTokenRevoked(published.get(0));
+
+        assertThrows(BadJwtException.class, () -> decoder.decode("token-a"));
+    }
+
+    @Test
+    @DisplayName("Revocations are not pushed out by other revocations before the token expires")
+    void revoke_ShouldNotBeBoundedBySize() {
+        CachingJwtDecoder small = new CachingJwtDecoder(delegate, 1, new SimpleMeterRegistry());
+        when(delegate.decode(anyString())).thenAnswer(invocation -> jwt(Instant.now().plus(Duration.ofMinutes(15))));
+
+        for (int i = 0; i < 100; i++) {
+            small.revoke("token-" + i);
+        }
+
+        for (int i = 0; i < 100; i++) {
+            String token = "token-" + i;
+            assertThrows(BadJwtException.class, () -> small.decode(token));
+        }
+    }
+
+    private static Jwt jwt(Instant expiresAt) {
+        return Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .subject("1")
+                .issuedAt(expiresAt.minus(Duration.ofMinutes(15)))
+                .expiresAt(expiresAt)
+                .build();
+    }
+}
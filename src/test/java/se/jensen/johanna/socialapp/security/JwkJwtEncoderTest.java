@@ -0,0 +1,76 @@
+package se.jensen.johanna.socialapp.security;
+
+import com.nimbusds.jose.jwk.JWK;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import se.jensen.johanna.socialapp.config.SecurityConfig;
+
+import java.security.KeyPair;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwkJwtEncoderTest {
+
+    @ParameterizedTest
+    @EnumSource(JwtSigningAlgorithm.class)
+    @DisplayName("Tokens signed with each algorithm are verified with the configured keys")
+    void encode_ShouldBeVerifiedByDecoder(JwtSigningAlgorithm algorithm) {
+        JWK signingKey = signingKey(algorithm, "key-1");
+        JwtDecoder decoder = decoder(signingKey, List.of());
+
+        Jwt jwt = decoder.decode(encode(signingKey));
+
+        assertEquals(algorithm.getName(), jwt.getHeaders().get("alg"));
+        assertEquals("key-1", jwt.getHeaders().get("kid"));
+        assertEquals("42", jwt.getSubject());
+        assertEquals(List.of("ROLE_MEMBER"), jwt.getClaimAsStringList("scope"));
+    }
+
+    @Test
+    @DisplayName("After a rotation tokens of the previous key are accepted, tokens of unknown keys are not")
+    void decode_ShouldAcceptPreviousKeys() {
+        KeyPair previousKeyPair = JwtSigningAlgorithm.RS256.generateKeyPair();
+        JWK previousKey = JwtSigningAlgorithm.RS256.jwk("key-1", previousKeyPair.getPublic(), previousKeyPair.getPrivate());
+        JWK currentKey = signingKey(JwtSigningAlgorithm.EdDSA, "key-2");
+        String previousKeySpec = "key-1:RS256:" + Base64.getEncoder().encodeToString(previousKeyPair.getPublic().getEncoded());
+        JwtDecoder decoder = decoder(currentKey, List.of(previousKeySpec));
+
+        assertEquals("42", decoder.decode(encode(previousKey)).getSubject());
+        assertEquals("42", decoder.decode(encode(currentKey)).getSubject());
+        assertThrows(BadJwtException.class, () -> decoder.decode(encode(signingKey(JwtSigningAlgorithm.EdDSA, "key-3"))));
+        // the right kid but signed by another key
+        assertThrows(BadJwtException.class, () -> decoder.decode(encode(signingKey(JwtSigningAlgorithm.EdDSA, "key-2"))));
+    }
+
+    private static JWK signingKey(JwtSigningAlgorithm algorithm, String keyId) {
+        KeyPair keyPair = algorithm.generateKeyPair();
+        return algorithm.jwk(keyId, keyPair.getPublic(), keyPair.getPrivate());
+    }
+
+    private static JwtDecoder decoder(JWK signingKey, List<String> previousKeys) {
+        return SecurityConfig.nimbusJwtDecoder(new SecurityConfig().jwtVerificationKeys(signingKey, previousKeys));
+    }
+
+    private static String encode(JWK signingKey) {
+        Instant now = Instant.now();
+        JwtClaimsSet claims = JwtClaimsSet.builder()
+                .issuer("self")
+                .issuedAt(now)
+                .expiresAt(now.plus(15, ChronoUnit.MINUTES))
+                .subject("42")
+                .claim("scope", List.of("ROLE_MEMBER"))
+                .build();
+        return new JwkJwtEncoder(signingKey).encode(JwtEncoderParameters.from(claims)).getTokenValue();
+    }
+}
@@ -0,0 +1,52 @@
+package se.jensen.johanna.socialapp.security;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.InvalidBearerTokenException;
+import se.jensen.johanna.socialapp.model.Role;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtUserAuthenticationConverterTest {
+
+    private final JwtUserAuthenticationConverter converter = new JwtUserAuthenticationConverter();
+
+    @Test
+    @DisplayName("The principal and authorities are taken from sub, name and scope")
+    void convert_ShouldBuildPrincipalFromClaims() {
+        Jwt jwt = jwt("42", List.of("ROLE_ADMIN"));
+
+        AbstractAuthenticationToken authentication = converter.convert(jwt);
+
+        assertEquals(new AuthenticatedUser(42L, "anna", Role.ADMIN), authentication.getPrincipal());
+        assertEquals("anna", authentication.getName());
+        assertEquals(List.of("ROLE_ADMIN"), authentication.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList());
+        assertSame(jwt, authentication.getCredentials());
+        assertTrue(authentication.isAuthenticated());
+    }
+
+    @Test
+    @DisplayName("Tokens without a numeric subject or a known role are rejected")
+    void convert_ShouldRejectIncompleteClaims() {
+        assertThrows(InvalidBearerTokenException.class, () -> converter.convert(jwt("anna", List.of("ROLE_MEMBER"))));
+        assertThrows(InvalidBearerTokenException.class, () -> converter.convert(jwt("42", List.of("ROLE_GUEST"))));
+    }
+
+    private static Jwt jwt(String subject, List<String> scope) {
+        Instant now = Instant.now();
+        return Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .subject(subject)
+                .claim("name", "anna")
+                .claim("scope", scope)
+                .issuedAt(now)
+                .expiresAt(now.plusSeconds(900))
+                .build();
+    }
+}
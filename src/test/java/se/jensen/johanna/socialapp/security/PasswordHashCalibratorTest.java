@@ -0,0 +1,131 @@
+package se.jensen.johanna.socialapp.security;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHashCalibratorTest {
+
+    @Test
+    @DisplayName("BCrypt hashes with a lower cost need a rehash, the current or a higher cost does not")
+    void upgradeEncoding_ShouldOnlyRaiseBcryptCost() {
+        PasswordEncoder encoder = new BCryptPasswordEncoder(5);
+
+        assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("secret")));
+        assertFalse(encoder.upgradeEncoding(new BCryptPasswordEncoder(6).encode("secret")));
+        assertFalse(encoder.upgradeEncoding(encoder.encode("secret")));
+    }
+
+    @Test
+    @DisplayName("Argon2 hashes with fewer iterations need a rehash, more iterations do not")
+    void upgradeEncoding_ShouldOnlyRaiseArgon2Iterations() {
+        PasswordEncoder encoder = PasswordHashCalibrator.argon2(1024, 1, 3);
+
+        assertTrue(encoder.upgradeEncoding(PasswordHashCalibrator.argon2(1024, 1, 2).encode("secret")));
+        assertFalse(encoder.upgradeEncoding(PasswordHashCalibrator.argon2(1024, 1, 4).encode("secret")));
+        assertFalse(encoder.upgradeEncoding(encoder.encode("secret")));
+        assertTrue(encoder.matches("secret", encoder.encode("secret")));
+    }
+
+    @Test
+    @DisplayName("Hashes stored without {id} prefix still match and are rehashed to the current algorithm")
+    void delegating_ShouldAcceptAndUpgradeLegacyBcrypt() {
+        PasswordEncoder bcrypt = new BCryptPasswordEncoder(4);
+        PasswordEncoder argon2 = PasswordHashCalibrator.argon2(1024, 1, 2);
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder("argon2", Map.of("bcrypt", bcrypt, "argon2", argon2));
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        String legacy = new BCryptPasswordEncoder(4).encode("secret");
+
+        assertTrue(encoder.matches("secret", legacy));
+        assertTrue(encoder.upgradeEncoding(legacy));
+        assertTrue(encoder.encode("secret").startsWith("{argon2}"));
+        assertFalse(encoder.upgradeEncoding(encoder.encode("secret")));
+    }
+
+    @Test
+    @DisplayName("Calibration never goes below the minimum or above the maximum cost")
+    void calibrator_ShouldStayWithinBounds() {
+        assertEquals(4, PasswordHashCalibrator.bcryptStrength(0, 4, 6));
+        assertEquals(5, PasswordHashCalibrator.bcryptStrength(10_000, 4, 5));
+        assertEquals(2, PasswordHashCalibrator.argon2Iterations(10_000, 1024, 1, 1, 2));
+    }
+
+    @Test
+    @DisplayName("Calibration picks the highest cost whose hash stays within the target")
+    void calibrate_ShouldPickHighestCostWithinTarget() {
+        StubEncoders encoders = new StubEncoders(cost -> 10L << (cost - 4));
+
+        // 4 -> 10 ms, 5 -> 20 ms, 6 -> 40 ms, 7 -> 80 ms
+        assertEquals(6, calibrate(45, 4, 10, encoders));
+        assertEquals(7, encoders.maxCostRequested());
+    }
+
+    @Test
+    @DisplayName("Calibration keeps the minimum cost even if it hashes slower than the target")
+    void calibrate_ShouldKeepMinimum_WhenSlowerThanTarget() {
+        StubEncoders encoders = new StubEncoders(cost -> 300L);
+
+        assertEquals(10, calibrate(250, 10, 14, encoders));
+    }
+
+    @Test
+    @DisplayName("Calibration stops at the maximum cost and never tries a higher one")
+    void calibrate_ShouldStopAtMaximum_WhenEveryCostIsFast() {
+        StubEncoders encoders = new StubEncoders(cost -> 1L);
+
+        assertEquals(8, calibrate(250, 4, 8, encoders));
+        assertEquals(8, encoders.maxCostRequested());
+    }
+
+    private static int calibrate(long targetMs, int min, int max, StubEncoders encoders) {
+        return PasswordHashCalibrator.calibrate("test cost", targetMs, min, max, encoders, encoders::nanoTime);
+    }
+
+    /**
+     * Encoders that take a known time per cost on a clock that only moves while they hash.
+     */
+    private static final class StubEncoders implements IntFunction<PasswordEncoder> {
+        private final IntFunction<Long> millisForCost;
+        private final List<Integer> requestedCosts = new ArrayList<>();
+        private long nanoTime;
+
+        StubEncoders(IntFunction<Long> millisForCost) {
+            this.millisForCost = millisForCost;
+        }
+
+        @Override
+        public PasswordEncoder apply(int cost) {
+            requestedCosts.add(cost);
+            return new PasswordEncoder() {
+                @Override
+                public String encode(CharSequence rawPassword) {
+                    nanoTime += TimeUnit.MILLISECONDS.toNanos(millisForCost.apply(cost));
+                    return "hash-" + cost;
+                }
+
+                @Override
+                public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                    return false;
+                }
+            };
+        }
+
+        long nanoTime() {
+            return nanoTime;
+        }
+
+        int maxCostRequested() {
+            return requestedCosts.stream().mapToInt(Integer::intValue).max().orElseThrow();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package se.jensen.johanna.socialapp.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.embedded.EmbeddedWebServerFactoryCustomizerAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.web.servlet.ServletRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import se.jensen.johanna.socialapp.config.RateLimitProperties;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs {@link RateLimitFilter} in embedded Tomcat with the application's forwarded-header settings,
+ * requests reach it from loopback as from a trusted proxy.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        classes = RateLimitClientAddressTest.Config.class,
+        properties = {"app.rate-limit.routes.login.capacity=2", "app.rate-limit.routes.login.period=1h"})
+class RateLimitClientAddressTest {
+    private static final int NO_CONTENT = 204;
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    @LocalServerPort
+    private int port;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @Test
+    @DisplayName("A spoofed X-Forwarded-For does not reset the limit of the address the proxy saw")
+    void spoofedForwardedFor_ShouldNotResetBucket() throws Exception {
+        assertEquals(NO_CONTENT, login("198.51.100.1, 203.0.113.7"));
+        assertEquals(NO_CONTENT, login("198.51.100.2, 203.0.113.7"));
+        assertEquals(TOO_MANY_REQUESTS, login("198.51.100.3, 203.0.113.7"));
+        // neither does a spoofed address from the trusted proxy range
+        assertEquals(TOO_MANY_REQUESTS, login("10.1.2.3, 203.0.113.7"));
+
+        assertEquals(NO_CONTENT, login("198.51.100.1, 203.0.113.8"));
+    }
+
+    private int login(String forwardedFor) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/auth/login"))
+                .header("X-Forwarded-For", forwardedFor)
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    @Configuration
+    @ImportAutoConfiguration({ServletWebServerFactoryAutoConfiguration.class,
+            EmbeddedWebServerFactoryCustomizerAutoConfiguration.class, JacksonAutoConfiguration.class})
+    @EnableConfigurationProperties(RateLimitProperties.class)
+    @Import({RateLimiter.class, RateLimitFilter.class})
+    static class Config {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        /**
+         * Filters only run for requests mapped to a servlet
+         */
+        @Bean
+        ServletRegistrationBean<HttpServlet> okServlet() {
+            return new ServletRegistrationBean<>(new HttpServlet() {
+                @Override
+                protected void doPost(HttpServletRequest request, HttpServletResponse response) {
+                    response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+                }
+            }, "/*");
+        }
+
+        @Bean
+        JwtDecoder jwtDecoder() {
+            return token -> {
+                throw new BadJwtException("not used for /auth routes");
+            };
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package se.jensen.johanna.socialapp.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import se.jensen.johanna.socialapp.config.RateLimitProperties;
+import se.jensen.johanna.socialapp.dto.ErrorResponse;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private RateLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        RateLimitProperties.Limit twoPerHour = new RateLimitProperties.Limit(2, Duration.ofHours(1));
+        RateLimitProperties properties = new RateLimitProperties(true, 1000,
+                Map.of("login", twoPerHour, "post", twoPerHour, "like", twoPerHour));
+        JwtDecoder jwtDecoder = token -> {
+            if (!token.startsWith("valid-")) {
+                throw new BadJwtException("invalid");
+            }
+            return Jwt.withTokenValue(token)
+                    .header("alg", "none")
+                    .subject(token.substring("valid-".length()))
+                    .expiresAt(Instant.now().plusSeconds(60))
+                    .build();
+        };
+        filter = new RateLimitFilter(properties, new RateLimiter(properties, meterRegistry), jwtDecoder, objectMapper);
+    }
+
+    @Test
+    @DisplayName("Should answer with 429 and Retry-After once an IP has used up its login limit")
+    void login_ShouldBeLimitedPerIp() throws Exception {
+        assertEquals(200, post("/auth/login", "10.0.0.1", null).getStatus());
+        assertEquals(200, post("/auth/login", "10.0.0.1", null).getStatus());
+        MockHttpServletResponse rejected = post("/auth/login", "10.0.0.1", null);
+
+        assertEquals(429, rejected.getStatus());
+        assertEquals("1800", rejected.getHeader(HttpHeaders.RETRY_AFTER));
+        ErrorResponse body = objectMapper.readValue(rejected.getContentAsString(), ErrorResponse.class);
+        assertEquals("TOO_MANY_REQUESTS", body.error());
+        assertEquals("/auth/login", body.path());
+        assertEquals(1.0, meterRegistry.get("rate_limit.rejected").tag("route", "login").counter().count());
+
+        assertEquals(200, post("/auth/login", "10.0.0.2", null).getStatus());
+    }
+
+    @Test
+    @DisplayName("Should count writes per user, whatever IP they come from")
+    void posts_ShouldBeLimitedPerUser() throws Exception {
+        assertEquals(200, post("/posts", "10.0.0.1", "valid-1").getStatus());
+        assertEquals(200, post("/posts", "10.0.0.2", "valid-1").getStatus());
+        assertEquals(429, post("/posts", "10.0.0.3", "valid-1").getStatus());
+
+        assertEquals(200, post("/posts", "10.0.0.1", "valid-2").getStatus());
+    }
+
+    @Test
+    @DisplayName("Should count requests with an invalid token per IP, and keep routes apart")
+    void invalidToken_ShouldBeLimitedPerIp() throws Exception {
+        assertEquals(200, post("/posts/5/likes", "10.0.0.1", "forged-1").getStatus());
+        assertEquals(200, post("/comments/7/likes", "10.0.0.1", null).getStatus());
+        assertEquals(429, post("/posts/5/likes", "10.0.0.1", "forged-2").getStatus());
+
+        // the forged tokens did not use up the limit of user 1
+        assertEquals(200, post("/posts/5/likes", "10.0.0.1", "valid-1").getStatus());
+        assertEquals(200, post("/posts", "10.0.0.1", null).getStatus());
+    }
+
+    @Test
+    @DisplayName("Should pass reads and routes without a configured limit through")
+    void otherRequests_ShouldNotBeLimited() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            assertEquals(200, request("GET", "/posts", "10.0.0.1", null).getStatus());
+            assertEquals(200, post("/auth/register", "10.0.0.1", null).getStatus());
+            assertEquals(200, post("/posts/5/comments", "10.0.0.1", "valid-1").getStatus());
+        }
+    }
+
+    private MockHttpServletResponse post(String path, String ip, String token) throws Exception {
+        return request("POST", path, ip, token);
+    }
+
+    private MockHttpServletResponse request(String method, String path, String ip, String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setRemoteAddr(ip);
+        if (token != null) {
+            request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
@@ -0,0 +1,70 @@
+package se.jensen.johanna.socialapp.security;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    @DisplayName("A full bucket allows its capacity at once and then one request per refill interval")
+    void tryConsume_ShouldAllowCapacity_ThenRefillEvenly() {
+        TokenBucket bucket = new TokenBucket(3, Duration.ofSeconds(3), 0);
+
+        assertEquals(0, bucket.tryConsume(0));
+        assertEquals(0, bucket.tryConsume(0));
+        assertEquals(0, bucket.tryConsume(0));
+        assertEquals(SECOND, bucket.tryConsume(0));
+        assertEquals(SECOND / 2, bucket.tryConsume(SECOND / 2));
+
+        assertEquals(0, bucket.tryConsume(SECOND));
+        assertTrue(bucket.tryConsume(SECOND) > 0);
+    }
+
+    @Test
+    @DisplayName("An idle bucket refills up to its capacity and no further")
+    void tryConsume_ShouldNotSaveMoreThanCapacity() {
+        TokenBucket bucket = new TokenBucket(2, Duration.ofSeconds(2), 0);
+        long later = 60 * SECOND;
+
+        assertEquals(0, bucket.tryConsume(later));
+        assertEquals(0, bucket.tryConsume(later));
+        assertTrue(bucket.tryConsume(later) > 0);
+    }
+
+    @Test
+    @DisplayName("Concurrent requests never take more tokens than the bucket holds")
+    void tryConsume_ShouldHandOutCapacity_WhenConcurrent() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(1000, Duration.ofDays(1), 0);
+        AtomicInteger allowed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            executor.execute(() -> {
+                for (int j = 0; j < 500; j++) {
+                    if (bucket.tryConsume(0) == 0) {
+                        allowed.incrementAndGet();
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(1000, allowed.get());
+    }
+
+    @Test
+    @DisplayName("Should reject a capacity or period that is not positive")
+    void constructor_ShouldRejectInvalidLimits() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, Duration.ofSeconds(1), 0));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(1, Duration.ZERO, 0));
+    }
+}
@@ -0,0 +1,90 @@
+package se.jensen.johanna.socialapp.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import se.jensen.johanna.socialapp.dto.LoginRequest;
+import se.jensen.johanna.socialapp.dto.LoginResult;
+import se.jensen.johanna.socialapp.dto.RegisterUserRequest;
+import se.jensen.johanna.socialapp.model.Role;
+import se.jensen.johanna.socialapp.model.User;
+import se.jensen.johanna.socialapp.security.MyUserDetails;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AuthServiceTest {
+    @Mock
+    private TokenService tokenService;
+    @Mock
+    private RefreshTokenService refreshTokenService;
+    @Mock
+    private AuthenticationManager authenticationManager;
+    @Mock
+    private UserService userService;
+
+    @InjectMocks
+    private AuthService authService;
+
+    @Test
+    @DisplayName("Login verifies the credentials through the AuthenticationManager")
+    void login_ShouldAuthenticateAndIssueTokens() {
+        MyUserDetails userDetails = new MyUserDetails(createUser());
+        Authentication authenticated = UsernamePasswordAuthenticationToken.authenticated(
+                userDetails, null, userDetails.getAuthorities());
+        when(authenticationManager.authenticate(any())).thenReturn(authenticated);
+        when(tokenService.generateAccessToken(authenticated)).thenReturn("access");
+        when(refreshTokenService.createRefreshToken(7L)).thenReturn("refresh");
+
+        LoginResult result = authService.login(new LoginRequest("felicia", "12345678"));
+
+        verify(authenticationManager).authenticate(argThat(token ->
+                "felicia".equals(token.getPrincipal()) && "12345678".equals(token.getCredentials())));
+        assertEquals("access", result.loginResponse().accessToken());
+        assertEquals("refresh", result.refreshToken());
+    }
+
+    @Test
+    @DisplayName("Login with wrong password issues no tokens")
+    void login_ShouldFailOnBadCredentials() {
+        when(authenticationManager.authenticate(any())).thenThrow(new BadCredentialsException("Bad credentials"));
+
+        assertThrows(BadCredentialsException.class,
+                () -> authService.login(new LoginRequest("felicia", "wrong")));
+        verifyNoInteractions(tokenService, refreshTokenService);
+    }
+
+    @Test
+    @DisplayName("Register issues tokens without verifying the new password again")
+    void register_ShouldNotReauthenticate() {
+        RegisterUserRequest request = new RegisterUserRequest("felicia@gmail.com", "felicia", "12345678", "12345678");
+        when(userService.registerUser(request)).thenReturn(createUser());
+        when(tokenService.generateAccessToken(any())).thenReturn("access");
+        when(refreshTokenService.createRefreshToken(7L)).thenReturn("refresh");
+
+        LoginResult result = authService.register(request);
+
+        verifyNoInteractions(authenticationManager);
+        assertEquals(7L, result.loginResponse().userId());
+        assertEquals("refresh", result.refreshToken());
+    }
+
+    private User createUser() {
+        User user = new User();
+        user.setUserId(7L);
+        user.setUsername("felicia");
+        user.setPassword("hashed");
+        user.setRole(Role.MEMBER);
+        return user;
+    }
+}
@@ -0,0 +1,62 @@
+package se.jensen.johanna.socialapp.service;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import se.jensen.johanna.socialapp.model.Comment;
+import se.jensen.johanna.socialapp.model.Post;
+import se.jensen.johanna.socialapp.model.Role;
+import se.jensen.johanna.socialapp.model.User;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Bulk creation of posts and comments must be sent in JDBC batches,
+ * with IDs allocated from sequences in blocks instead of one round trip per row.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+class BulkInsertTest {
+    private static final int ROWS = 200;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    @DisplayName("Creating 200 posts with a comment each should use batched statements")
+    void bulkCreate_ShouldBatchInserts() {
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        User author = new User();
+        author.setUsername("author");
+        author.setEmail("author@example.com");
+        author.setPassword("hashed");
+        author.setRole(Role.MEMBER);
+        entityManager.persist(author);
+        entityManager.flush();
+        statistics.clear();
+
+        for (int i = 0; i < ROWS; i++) {
+            Post post = new Post();
+            post.setText("post " + i);
+            post.setUser(author);
+            entityManager.persist(post);
+            Comment comment = new Comment();
+            comment.setText("comment " + i);
+            comment.setUser(author);
+            comment.setPost(post);
+            entityManager.persist(comment);
+        }
+        entityManager.flush();
+
+        assertEquals(2 * ROWS, statistics.getEntityInsertCount());
+        long statements = statistics.getPrepareStatementCount();
+        // 2 * 200 rows in batches of 50 plus one sequence call per 50 IDs and table
+        assertTrue(statements <= 20, "expected batched inserts, got " + statements + " statements");
+    }
+}
@@ -1,23 +1,41 @@
 package se.jensen.johanna.socialapp.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.*;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import se.jensen.johanna.socialapp.cache.CacheInvalidationBus;
+import se.jensen.johanna.socialapp.cache.RequestCoalescer;
+import se.jensen.johanna.socialapp.dto.CommentDTO;
+import se.jensen.johanna.socialapp.dto.CommentLikeCount;
+import se.jensen.johanna.socialapp.dto.CommentLikeSummary;
 import se.jensen.johanna.socialapp.dto.CommentRequest;
+import se.jensen.johanna.socialapp.dto.CommentRow;
+import se.jensen.johanna.socialapp.dto.CursorPage;
 import se.jensen.johanna.socialapp.dto.UpdateCommentResponse;
 import se.jensen.johanna.socialapp.exception.ForbiddenException;
+import se.jensen.johanna.socialapp.exception.InvalidRequestException;
 import se.jensen.johanna.socialapp.exception.NotFoundException;
 import se.jensen.johanna.socialapp.mapper.CommentMapper;
 import se.jensen.johanna.socialapp.model.Comment;
+import se.jensen.johanna.socialapp.model.Post;
 import se.jensen.johanna.socialapp.model.User;
+import se.jensen.johanna.socialapp.repository.CommentLikeRepository;
 import se.jensen.johanna.socialapp.repository.CommentRepository;
+import se.jensen.johanna.socialapp.service.helper.EntityProvider;
+import se.jensen.johanna.socialapp.util.CursorUtils;
 
 import java.time.LocalDateTime;
-import java.util.Optional;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -29,6 +47,14 @@ class CommentServiceTest {
     private CommentRepository commentRepository;
     @Mock
     private CommentMapper commentMapper;
+    @Mock
+    private EntityProvider entityProvider;
+    @Mock
+    private CommentLikeRepository commentLikeRepository;
+    @Mock
+    private CacheInvalidationBus cacheInvalidationBus;
+    @Spy
+    private RequestCoalescer requestCoalescer = new RequestCoalescer(new SimpleMeterRegistry());
     @InjectMocks
     private CommentService commentService;
 
@@ -43,6 +69,9 @@ class CommentServiceTest {
         existingComment = new Comment();
         existingComment.setUser(owner);
         existingComment.setCommentId(2L);
+        Post post = new Post();
+        post.setPostId(1L);
+        existingComment.setPost(post);
         commentRequest = new CommentRequest("Updated Content");
     }
 
@@ -53,8 +82,8 @@ class CommentServiceTest {
         Long wrongUserId = 2L;
 
 
-        when(commentRepository.findById(existingComment.getCommentId()))
-                .thenReturn(Optional.of(existingComment));
+        when(entityProvider.getCommentOrThrow(existingComment.getCommentId()))
+                .thenReturn(existingComment);
 
         //Act & Assert
         assertThrows(ForbiddenException.class, () ->
@@ -73,7 +102,7 @@ class CommentServiceTest {
     void updateComment_ShouldUpdateComment_WhenUserIsOwner() {
 
 
-        when(commentRepository.findById(existingComment.getCommentId())).thenReturn(Optional.of(existingComment));
+        when(entityProvider.getCommentOrThrow(existingComment.getCommentId())).thenReturn(existingComment);
         UpdateCommentResponse mockResponse = new UpdateCommentResponse(
                 commentRequest.text(), LocalDateTime.now());
         when(commentMapper.toUpdateCommentResponse(existingComment)).thenReturn(mockResponse);
@@ -97,7 +126,7 @@ class CommentServiceTest {
     void updateComment_ShouldThrowNotFound_WhenCommentIsNotFound() {
         //Arrange
         Long nonExistingCommentId = 99L;
-        when(commentRepository.findById(nonExistingCommentId)).thenReturn(Optional.empty());
+        when(entityProvider.getCommentOrThrow(nonExistingCommentId)).thenThrow(new NotFoundException());
 
         //Act & Assert
         assertThrows(NotFoundException.class, () -> commentService.updateComment(
@@ -109,4 +138,167 @@ class CommentServiceTest {
 
 
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should decrement the reply count of the parent when a reply is deleted")
+    void deleteComment_ShouldAdjustReplyCount_WhenCommentIsReply() {
+        //Arrange
+        Comment parent = new Comment();
+        parent.setCommentId(5L);
+        existingComment.setParent(parent);
+        when(entityProvider.getCommentOrThrow(existingComment.getCommentId())).thenReturn(existingComment);
+
+        //Act
+        commentService.deleteComment(existingComment.getCommentId(), owner.getUserId());
+
+        //Assert
+        verify(commentRepository).delete(existingComment);
+        verify(commentRepository).adjustReplyCount(5L, -1);
+    }
+
+    @Test
+    @DisplayName("Should not decrement the reply count when a concurrent delete removed the reply first")
+    void deleteComment_ShouldNotAdjustReplyCount_WhenDeletedConcurrently() {
+        //Arrange
+        Comment parent = new Comment();
+        parent.setCommentId(5L);
+        existingComment.setParent(parent);
+        when(entityProvider.getCommentOrThrow(existingComment.getCommentId())).thenReturn(existingComment);
+        doThrow(new ObjectOptimisticLockingFailureException(Comment.class, existingComment.getCommentId()))
+                .when(commentRepository).flush();
+
+        //Act & Assert
+        assertThrows(NotFoundException.class,
+                () -> commentService.deleteComment(existingComment.getCommentId(), owner.getUserId()));
+        verify(commentRepository, never()).adjustReplyCount(anyLong(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Should return next cursor when there are more comments than size")
+    void scrollMainComments_ShouldReturnNextCursor_WhenMoreCommentsExist() {
+        //Arrange
+        Long postId = 1L;
+        LocalDateTime now = LocalDateTime.now();
+        CommentRow newest = comment(3L, null, now);
+        CommentRow middle = comment(2L, null, now.minusMinutes(1));
+        CommentRow oldest = comment(1L, null, now.minusMinutes(2));
+        when(commentRepository.findMainCommentsFirst(postId, Limit.of(3)))
+                .thenReturn(new ArrayList<>(List.of(newest, middle, oldest)));
+
+        //Act
+        CursorPage<CommentDTO> result = commentService.scrollMainComments(postId, owner.getUserId(), null, 2);
+
+        //Assert
+        assertTrue(result.hasNext());
+        assertEquals(2, result.content().size());
+        CursorUtils.Cursor cursor = CursorUtils.decode(result.nextCursor());
+        assertEquals(middle.createdAt(), cursor.createdAt());
+        assertEquals(middle.commentId(), cursor.id());
+    }
+
+    @Test
+    @DisplayName("Should seek from cursor and return no cursor on last slice")
+    void scrollMainComments_ShouldSeekFromCursor_WhenCursorIsGiven() {
+        //Arrange
+        Long postId = 1L;
+        LocalDateTime createdAt = LocalDateTime.now();
+        String cursor = CursorUtils.encode(createdAt, 2L);
+        when(commentRepository.findMainCommentsBefore(postId, createdAt, 2L, Limit.of(3)))
+                .thenReturn(List.of(comment(1L, null, createdAt.minusMinutes(1))));
+
+        //Act
+        CursorPage<CommentDTO> result = commentService.scrollMainComments(postId, owner.getUserId(), cursor, 2);
+
+        //Assert
+        assertFalse(result.hasNext());
+        assertNull(result.nextCursor());
+        assertEquals(1, result.content().size());
+    }
+
+    @Test
+    @DisplayName("Should throw InvalidRequestException when cursor is malformed")
+    void scrollMainComments_ShouldThrowInvalidRequest_WhenCursorIsMalformed() {
+        assertThrows(InvalidRequestException.class, () ->
+                commentService.scrollMainComments(1L, owner.getUserId(), "not-a-cursor", 10));
+
+        verifyNoInteractions(commentRepository);
+    }
+
+    @Test
+    @DisplayName("Should load replies per level and like counts for the whole tree with one grouped query")
+    void findAllMainComments_ShouldLoadLikesWithOneQuery() {
+        //Arrange
+        Long postId = 1L;
+        Pageable pageable = PageRequest.of(1, 10);
+        CommentRow parent = comment(1L, null, LocalDateTime.now());
+        CommentRow reply = comment(2L, 1L, LocalDateTime.now());
+        when(commentRepository.findMainCommentRows(postId, pageable))
+                .thenReturn(new PageImpl<>(List.of(parent)));
+        when(commentRepository.findReplyRowsByParentIds(List.of(1L))).thenReturn(List.of(reply));
+        List<CommentLikeCount> counts = List.of(new CommentLikeCount(1L, 3L, 1L));
+        when(commentLikeRepository.countLikesForComments(List.of(1L, 2L), owner.getUserId())).thenReturn(counts);
+
+        //Act
+        commentService.findAllMainComments(postId, owner.getUserId(), pageable);
+
+        //Assert
+        CommentLikeSummary likes = CommentLikeSummary.of(counts);
+        verify(commentMapper).toCommentDTO(eq(parent), anyList(), eq(likes));
+        verify(commentMapper).toCommentDTO(reply, List.of(), likes);
+        verify(commentRepository, times(2)).findReplyRowsByParentIds(anyCollection());
+        verify(commentLikeRepository, times(1)).countLikesForComments(anyCollection(), any());
+        assertEquals(3, likes.likeCount(1L));
+        assertTrue(likes.likedByMe(1L));
+        assertEquals(0, likes.likeCount(2L));
+        assertFalse(likes.likedByMe(2L));
+    }
+
+    @Test
+    @DisplayName("Should load shared like counts without viewer and likedByMe separately on the first page")
+    void findAllMainComments_ShouldSplitViewerLikes_OnFirstPage() {
+        //Arrange
+        Long postId = 1L;
+        Pageable pageable = PageRequest.of(0, 10);
+        CommentRow parent = comment(1L, null, LocalDateTime.now());
+        CommentRow reply = comment(2L, 1L, LocalDateTime.now());
+        when(commentRepository.findMainCommentRows(postId, pageable))
+                .thenReturn(new PageImpl<>(List.of(parent)));
+        when(commentRepository.findReplyRowsByParentIds(List.of(1L))).thenReturn(List.of(reply));
+        when(commentLikeRepository.countLikesForComments(List.of(1L, 2L), null))
+                .thenReturn(List.of(new CommentLikeCount(1L, 3L, 0L), new CommentLikeCount(2L, 1L, 0L)));
+        when(commentLikeRepository.findLikedCommentIds(List.of(1L, 2L), owner.getUserId())).thenReturn(Set.of(2L));
+
+        //Act
+        commentService.findAllMainComments(postId, owner.getUserId(), pageable);
+
+        //Assert
+        CommentLikeSummary likes = CommentLikeSummary.of(
+                List.of(new CommentLikeCount(1L, 3L, 0L), new CommentLikeCount(2L, 1L, 1L)));
+        verify(commentMapper).toCommentDTO(eq(parent), anyList(), eq(likes));
+        verify(commentMapper).toCommentDTO(reply, List.of(), likes);
+        verify(requestCoalescer).load(eq("main-comments"), eq(List.of(postId, pageable)), any());
+        assertFalse(likes.likedByMe(1L));
+        assertTrue(likes.likedByMe(2L));
+    }
+
+    @Test
+    @DisplayName("Should rank by stored score when sort=top is requested")
+    void findAllMainComments_ShouldSortByScore_WhenSortIsTop() {
+        //Arrange
+        Long postId = 1L;
+        Pageable top = PageRequest.of(1, 10, Sort.by(CommentService.TOP_SORT_KEY));
+        Pageable byScore = PageRequest.of(1, 10, Sort.by(Sort.Direction.DESC, "score", "commentId"));
+        when(commentRepository.findMainCommentRows(postId, byScore)).thenReturn(Page.empty());
+
+        //Act
+        commentService.findAllMainComments(postId, owner.getUserId(), top);
+
+        //Assert
+        verify(commentRepository).findMainCommentRows(postId, byScore);
+        verifyNoInteractions(commentLikeRepository);
+    }
+
+    private CommentRow comment(Long commentId, Long parentId, LocalDateTime createdAt) {
+        return new CommentRow(commentId, parentId, owner.getUserId(), owner.getUsername(), "text", createdAt, null);
+    }
+}
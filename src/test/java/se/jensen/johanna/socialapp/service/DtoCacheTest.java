@@ -0,0 +1,157 @@
+package se.jensen.johanna.socialapp.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.support.TransactionTemplate;
+import se.jensen.johanna.socialapp.cache.CacheInvalidationBus;
+import se.jensen.johanna.socialapp.cache.DtoCacheEvictor;
+import se.jensen.johanna.socialapp.cache.EntityChange;
+import se.jensen.johanna.socialapp.cache.RequestCoalescer;
+import se.jensen.johanna.socialapp.config.CacheConfig;
+import se.jensen.johanna.socialapp.dto.PostDTO;
+import se.jensen.johanna.socialapp.dto.PostVersion;
+import se.jensen.johanna.socialapp.dto.RegisterUserRequest;
+import se.jensen.johanna.socialapp.dto.UpdateUserRequest;
+import se.jensen.johanna.socialapp.dto.UserDTO;
+import se.jensen.johanna.socialapp.mapper.PostMapper;
+import se.jensen.johanna.socialapp.mapper.UserMapper;
+import se.jensen.johanna.socialapp.model.Post;
+import se.jensen.johanna.socialapp.model.Role;
+import se.jensen.johanna.socialapp.model.User;
+import se.jensen.johanna.socialapp.repository.CommentRepository;
+import se.jensen.johanna.socialapp.repository.PostRepository;
+import se.jensen.johanna.socialapp.repository.UserRepository;
+import se.jensen.johanna.socialapp.service.helper.EntityProvider;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest(classes = {CacheConfig.class, CacheInvalidationBus.class, DtoCacheEvictor.class,
+        RequestCoalescer.class, SimpleMeterRegistry.class, PostService.class, UserService.class})
+class DtoCacheTest {
+
+    @MockitoBean
+    private PostRepository postRepository;
+    @MockitoBean
+    private UserRepository userRepository;
+    @MockitoBean
+    private CommentRepository commentRepository;
+    @MockitoBean
+    private PostMapper postMapper;
+    @MockitoBean
+    private UserMapper userMapper;
+    @MockitoBean
+    private PasswordEncoder passwordEncoder;
+    @MockitoBean
+    private EntityProvider entityProvider;
+
+    @Autowired
+    private PostService postService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private CacheManager cacheManager;
+    @Autowired
+    private CacheInvalidationBus cacheInvalidationBus;
+
+    private final PostDTO post = new PostDTO(1L, 2L, "user", null, "text", LocalDateTime.now(), null, null);
+
+    @BeforeEach
+    void setUp() {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        when(postRepository.findPostDTOById(1L)).thenReturn(Optional.of(post));
+        when(userRepository.findUserDTOById(2L)).thenReturn(Optional.of(new UserDTO(2L, null, "user", null, null)));
+    }
+
+    @Test
+    @DisplayName("Repeated reads of a post are served from the cache")
+    void getPost_ShouldHitDatabaseOnce_WhenReadTwice() {
+        assertEquals(post, postService.getPost(1L));
+        assertEquals(post, postService.getPost(1L));
+
+        verify(postRepository, times(1)).findPostDTOById(1L);
+    }
+
+    @Test
+    @DisplayName("Updating a post evicts it from the cache")
+    void updatePost_ShouldEvictPost() {
+        Post entity = new Post();
+        User author = new User();
+        author.setUserId(2L);
+        entity.setUser(author);
+        when(entityProvider.getPostOrThrow(1L)).thenReturn(entity);
+        postService.getPost(1L);
+
+        postService.updatePost(null, 1L, 2L);
+        postService.getPost(1L);
+
+        verify(postRepository, times(2)).findPostDTOById(1L);
+    }
+
+    @Test
+    @DisplayName("Updating a user evicts the profile and the posts that embed it")
+    void updateUser_ShouldEvictUserAndPosts() {
+        when(entityProvider.getUserOrThrow(2L)).thenReturn(new User());
+        userService.getUser(2L);
+        postService.getPost(1L);
+
+        userService.updateUser(new UpdateUserRequest(null, null), 2L);
+        userService.getUser(2L);
+        postService.getPost(1L);
+
+        verify(userRepository, times(2)).findUserDTOById(2L);
+        verify(postRepository, times(2)).findPostDTOById(1L);
+    }
+
+    @Test
+    @DisplayName("Reloading a post older than its version replaces the cached one")
+    void reloadPost_ShouldReplaceCachedPost() {
+        postService.getPost(1L);
+        PostDTO edited = new PostDTO(1L, 2L, "user", null, "edited", post.createdAt(), LocalDateTime.now(), null);
+        when(postRepository.findPostDTOById(1L)).thenReturn(Optional.of(edited));
+
+        assertEquals(edited, postService.reloadPost(1L));
+        assertEquals(edited, postService.getPost(1L));
+        assertEquals(edited.version().eTag(), new PostVersion(1L, edited.updatedAt(), null).eTag());
+        verify(postRepository, times(2)).findPostDTOById(1L);
+    }
+
+    @Test
+    @DisplayName("Registering a user keeps the cached posts")
+    void registerUser_ShouldKeepPosts() {
+        RegisterUserRequest request = new RegisterUserRequest("new@example.com", "new", "password", "password");
+        when(passwordEncoder.encode("password")).thenReturn("hashed");
+        when(userMapper.toUser(request, "hashed", Role.MEMBER)).thenReturn(new User());
+        postService.getPost(1L);
+
+        userService.registerUser(request);
+        postService.getPost(1L);
+
+        verify(postRepository, times(1)).findPostDTOById(1L);
+    }
+
+    @Test
+    @DisplayName("A change committed in a transaction evicts the post on this node")
+    void publish_ShouldEvictPost_WhenTransactionCommits() {
+        TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(
+                new DriverManagerDataSource("jdbc:h2:mem:dto-cache-test", "sa", "")));
+        postService.getPost(1L);
+
+        transaction.executeWithoutResult(status -> cacheInvalidationBus.publish(EntityChange.post(1L)));
+        postService.getPost(1L);
+
+        verify(postRepository, times(2)).findPostDTOById(1L);
+    }
+}
@@ -0,0 +1,157 @@
+package se.jensen.johanna.socialapp.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import se.jensen.johanna.socialapp.cache.CacheInvalidationBus;
+import se.jensen.johanna.socialapp.cache.RequestCoalescer;
+import se.jensen.johanna.socialapp.config.SecondLevelCacheConfig;
+import se.jensen.johanna.socialapp.dto.CommentRequest;
+import se.jensen.johanna.socialapp.mapper.CommentMapperImpl;
+import se.jensen.johanna.socialapp.mapper.PostMapperImpl;
+import se.jensen.johanna.socialapp.model.*;
+import se.jensen.johanna.socialapp.service.helper.EntityProvider;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * Entity tags must change with every change visible in the response, and be read with one statement.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({SecondLevelCacheConfig.class, CacheInvalidationBus.class, RequestCoalescer.class, SimpleMeterRegistry.class,
+        PostService.class, CommentService.class, LikeService.class, EntityProvider.class,
+        PostMapperImpl.class, CommentMapperImpl.class})
+class ETagTest {
+
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private PostService postService;
+    @Autowired
+    private CommentService commentService;
+    @Autowired
+    private LikeService likeService;
+
+    private TestEntities entities;
+
+    @BeforeEach
+    void setUp() {
+        entities = new TestEntities(entityManager);
+    }
+
+    @Test
+    @DisplayName("Post ETag should change when the post is edited or the author updates the profile")
+    void postETag_ShouldChange_WhenPostOrAuthorChanges() {
+        User author = entities.createUser();
+        Post post = entities.createPost(author);
+        String created = eTag(post);
+
+        post.setText("edited");
+        post.setUpdatedAt(LocalDateTime.now().plusSeconds(1));
+        String edited = eTag(post);
+
+        author.setBio("new bio");
+        String authorUpdated = eTag(post);
+
+        assertNotEquals(created, edited);
+        assertNotEquals(edited, authorUpdated);
+        assertEquals(authorUpdated, eTag(post));
+    }
+
+    @Test
+    @DisplayName("Comment ETag should change with new, edited and removed comments and likes")
+    void commentsETag_ShouldChange_WithCommentsAndLikes() {
+        Post post = entities.createPost(entities.createUser());
+        User viewer = entities.createUser();
+        User other = entities.createUser();
+        String empty = commentsETag(post, viewer);
+
+        Long commentId = commentService.commentPost(post.getPostId(), other.getUserId(), new CommentRequest("comment"))
+                .commentId();
+        String commented = commentsETag(post, viewer);
+
+        commentService.updateComment(commentId, other.getUserId(), new CommentRequest("edited"));
+        String edited = commentsETag(post, viewer);
+
+        likeService.toggleCommentLike(commentId, viewer.getUserId());
+        String liked = commentsETag(post, viewer);
+
+        // same number of likes, and the new like may get a lower ID from another node's sequence block
+        likeService.toggleCommentLike(commentId, other.getUserId());
+        likeService.toggleCommentLike(commentId, viewer.getUserId());
+        String likeSwapped = commentsETag(post, viewer);
+
+        likeService.toggleCommentLike(commentId, other.getUserId());
+        commentService.deleteComment(commentId, other.getUserId());
+        String deleted = commentsETag(post, viewer);
+
+        assertNotEquals(empty, commented);
+        assertNotEquals(commented, edited);
+        assertNotEquals(edited, liked);
+        assertNotEquals(liked, likeSwapped);
+        assertNotEquals(likeSwapped, deleted);
+        assertEquals(deleted, commentsETag(post, viewer));
+        assertNotEquals(deleted, commentsETag(post, entities.createUser()));
+    }
+
+    @Test
+    @DisplayName("Reply pages should share the ETag of the post's comments")
+    void repliesETag_ShouldFollowPostComments() {
+        Post post = entities.createPost(entities.createUser());
+        Comment comment = createComment(post);
+        User viewer = entities.createUser();
+
+        assertEquals(commentsETag(post, viewer), commentService.getRepliesETag(comment.getCommentId(), viewer.getUserId()));
+    }
+
+    @Test
+    @DisplayName("ETags should be read with one statement")
+    void eTags_ShouldUseOneStatement() {
+        Post post = entities.createPost(entities.createUser());
+        createComment(post);
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics.clear();
+        postService.getPostETag(post.getPostId());
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        statistics.clear();
+        commentService.getCommentsETag(post.getPostId(), null);
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    private String eTag(Post post) {
+        entityManager.flush();
+        return postService.getPostETag(post.getPostId());
+    }
+
+    private String commentsETag(Post post, User viewer) {
+        // each request has its own persistence context, bulk deletes do not detach loaded likes
+        entityManager.flush();
+        entityManager.clear();
+        return commentService.getCommentsETag(post.getPostId(), viewer.getUserId());
+    }
+
+    private Comment createComment(Post post) {
+        Comment comment = new Comment();
+        comment.setText("comment");
+        comment.setUser(entities.createUser());
+        comment.setPost(post);
+        entityManager.persist(comment);
+        return comment;
+    }
+}
@@ -7,8 +7,11 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import se.jensen.johanna.socialapp.dto.LikeResponse;
+import se.jensen.johanna.socialapp.model.Comment;
 import se.jensen.johanna.socialapp.model.Post;
 import se.jensen.johanna.socialapp.model.User;
+import se.jensen.johanna.socialapp.repository.CommentLikeRepository;
+import se.jensen.johanna.socialapp.repository.CommentRepository;
 import se.jensen.johanna.socialapp.repository.PostLikeRepository;
 import se.jensen.johanna.socialapp.service.helper.EntityProvider;
 
@@ -27,6 +30,12 @@ class LikeServiceTest {
     @Mock
     private EntityProvider entityProvider;
 
+    @Mock
+    private CommentLikeRepository commentLikeRepository;
+
+    @Mock
+    private CommentRepository commentRepository;
+
     private Long postId;
     private Long userId;
     private Post post;
@@ -74,4 +83,48 @@ class LikeServiceTest {
         assertEquals(true, likeResponse.likedByMe());
 
     }
-}
\ No newline at end of file
+
+    @Test
+    void createCommentLike_adjustsStoredLikeCount() {
+        Long commentId = 3L;
+        Comment comment = new Comment();
+        comment.setCommentId(commentId);
+        when(commentLikeRepository.existsBetween(commentId, userId)).thenReturn(false);
+        when(entityProvider.getCommentOrThrow(commentId)).thenReturn(comment);
+        when(entityProvider.getUserOrThrow(userId)).thenReturn(user);
+        when(commentLikeRepository.countByComment_CommentId(commentId)).thenReturn(1);
+
+        LikeResponse likeResponse = likeService.toggleCommentLike(commentId, userId);
+
+        verify(commentLikeRepository).save(any());
+        verify(commentRepository).adjustLikeCount(commentId, 1);
+        assertEquals(1, likeResponse.likeCount());
+        assertEquals(true, likeResponse.likedByMe());
+    }
+
+    @Test
+    void deleteCommentLike_adjustsStoredLikeCount() {
+        Long commentId = 3L;
+        when(commentLikeRepository.existsBetween(commentId, userId)).thenReturn(true);
+        when(commentLikeRepository.deleteBetween(commentId, userId)).thenReturn(1);
+        when(commentLikeRepository.countByComment_CommentId(commentId)).thenReturn(0);
+
+        likeService.toggleCommentLike(commentId, userId);
+
+        verify(commentRepository).adjustLikeCount(commentId, -1);
+    }
+
+    @Test
+    void deleteCommentLike_doesNotAdjustLikeCount_whenAlreadyRemoved() {
+        Long commentId = 3L;
+        when(commentLikeRepository.existsBetween(commentId, userId)).thenReturn(true);
+        when(commentLikeRepository.deleteBetween(commentId, userId)).thenReturn(0);
+        when(commentLikeRepository.countByComment_CommentId(commentId)).thenReturn(0);
+
+        LikeResponse likeResponse = likeService.toggleCommentLike(commentId, userId);
+
+        verify(commentRepository, never()).adjustLikeCount(anyLong(), anyInt());
+        assertEquals(0, likeResponse.likeCount());
+        assertEquals(false, likeResponse.likedByMe());
+    }
+}
@@ -6,6 +6,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import se.jensen.johanna.socialapp.cache.CacheInvalidationBus;
 import se.jensen.johanna.socialapp.dto.PostRequest;
 import se.jensen.johanna.socialapp.dto.UpdatePostResponse;
 import se.jensen.johanna.socialapp.exception.ForbiddenException;
@@ -14,9 +15,9 @@ import se.jensen.johanna.socialapp.mapper.PostMapper;
 import se.jensen.johanna.socialapp.model.Post;
 import se.jensen.johanna.socialapp.model.User;
 import se.jensen.johanna.socialapp.repository.PostRepository;
+import se.jensen.johanna.socialapp.service.helper.EntityProvider;
 
 import java.time.LocalDateTime;
-import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -31,6 +32,12 @@ class PostServiceTest {
     @Mock
     private PostMapper postMapper;
 
+    @Mock
+    private EntityProvider entityProvider;
+
+    @Mock
+    private CacheInvalidationBus cacheInvalidationBus;
+
     @InjectMocks
     private PostService postService;
 
@@ -63,7 +70,7 @@ class PostServiceTest {
                 new UpdatePostResponse(postId, userId, "Updated content",
                         existingPost.getCreatedAt(), LocalDateTime.now());
 
-        when(postRepository.findById(postId)).thenReturn(Optional.of(existingPost));
+        when(entityProvider.getPostOrThrow(postId)).thenReturn(existingPost);
         when(postMapper.toUpdatePostResponseDTO(existingPost)).thenReturn(expectedResponse);
 
         // Act
@@ -71,7 +78,7 @@ class PostServiceTest {
 
         // Assert
         assertNotNull(actualResponse);
-        verify(postRepository).findById(postId);
+        verify(entityProvider).getPostOrThrow(postId);
         verify(postMapper).updatePost(postRequest, existingPost);
         verify(postRepository).save(existingPost);
         verify(postMapper).toUpdatePostResponseDTO(existingPost);
@@ -80,7 +87,7 @@ class PostServiceTest {
     @Test
     void updatePost_ThrowsNotFoundException_WhenPostDoesNotExist() {
         // Arrange
-        when(postRepository.findById(postId)).thenReturn(Optional.empty());
+        when(entityProvider.getPostOrThrow(postId)).thenThrow(new NotFoundException());
 
         // Act & Assert
         assertThrows(NotFoundException.class, () ->
@@ -93,7 +100,7 @@ class PostServiceTest {
     void updatePost_ThrowsForbiddenException_WhenUserIsNotAuthor() {
         // Arrange
         Long wrongUserId = 99L;
-        when(postRepository.findById(postId)).thenReturn(Optional.of(existingPost));
+        when(entityProvider.getPostOrThrow(postId)).thenReturn(existingPost);
 
         // Act & Assert
         assertThrows(ForbiddenException.class, () ->
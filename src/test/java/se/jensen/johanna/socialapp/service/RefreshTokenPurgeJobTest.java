@@ -0,0 +1,80 @@
+package se.jensen.johanna.socialapp.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import se.jensen.johanna.socialapp.model.Role;
+import se.jensen.johanna.socialapp.model.User;
+import se.jensen.johanna.socialapp.repository.RefreshTokenRepository;
+import se.jensen.johanna.socialapp.repository.UserRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = {"app.refresh-token.purge.batch-size=2", "app.refresh-token.purge.max-batches=2"})
+@ActiveProfiles("test")
+@Import({RefreshTokenPurgeJob.class, RefreshTokenPurgeJobTest.Config.class})
+class RefreshTokenPurgeJobTest {
+
+    @Autowired
+    private RefreshTokenPurgeJob refreshTokenPurgeJob;
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private EntityManager entityManager;
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Test
+    @DisplayName("Deletes only expired tokens, in batches and at most max-batches per run")
+    void purgeExpired_ShouldDeleteExpiredTokensInBoundedBatches() {
+        Instant now = Instant.now();
+        for (int i = 0; i < 5; i++) {
+            storeToken("expired" + i, now.minus(Duration.ofDays(i + 1)));
+        }
+        storeToken("valid0", now.plus(Duration.ofDays(1)));
+        storeToken("valid1", now.plus(Duration.ofDays(7)));
+
+        // 2 batches of 2 per run
+        assertEquals(4, refreshTokenPurgeJob.purgeExpired());
+        assertEquals(1, refreshTokenPurgeJob.purgeExpired());
+        assertEquals(0, refreshTokenPurgeJob.purgeExpired());
+
+        entityManager.clear();
+        assertEquals(2, refreshTokenRepository.count());
+        assertTrue(refreshTokenRepository.findAll().stream().allMatch(t -> t.getExpiryDate().isAfter(now)));
+        assertEquals(5.0, meterRegistry.get("refresh_tokens.purged").counter().count());
+        assertEquals(3, meterRegistry.get("refresh_tokens.purge").tag("outcome", "completed").timer().count());
+    }
+
+    private void storeToken(String name, Instant expiryDate) {
+        User user = new User();
+        user.setUsername(name);
+        user.setEmail(name + "@example.com");
+        user.setPassword("hashed");
+        user.setRole(Role.MEMBER);
+        userRepository.saveAndFlush(user);
+        refreshTokenRepository.upsert(user, RefreshTokenService.hash(name), expiryDate);
+    }
+}
@@ -0,0 +1,115 @@
+package se.jensen.johanna.socialapp.service;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import se.jensen.johanna.socialapp.exception.RefreshTokenException;
+import se.jensen.johanna.socialapp.model.Role;
+import se.jensen.johanna.socialapp.model.User;
+import se.jensen.johanna.socialapp.repository.UserRepository;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Refresh tokens are stored hashed, issued with one upsert and rotated with at most two statements.
+ * Runs without a test transaction, so each service call commits or rolls back on its own.
+ */
+@DataJpaTest(properties = "app.jwt.refresh-expiration-ms=60000")
+@ActiveProfiles("test")
+@Import(RefreshTokenService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RefreshTokenServiceTest {
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private UserRepository userRepository;
+
+    private Statistics statistics;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        user = new User();
+        user.setUsername("anna");
+        user.setEmail("anna@example.com");
+        user.setPassword("hashed");
+        user.setRole(Role.MEMBER);
+        user = userRepository.save(user);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM refresh_tokens");
+        userRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Login replaces the user's token with one statement and stores only its hash")
+    void createRefreshToken_ShouldUpsertHash() {
+        refreshTokenService.createRefreshToken(user.getUserId());
+        statistics.clear();
+
+        String token = refreshTokenService.createRefreshToken(user.getUserId());
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        List<String> stored = jdbcTemplate.queryForList("SELECT token_hash FROM refresh_tokens", String.class);
+        assertEquals(List.of(RefreshTokenService.hash(token)), stored);
+        assertNotEquals(token, stored.get(0));
+    }
+
+    @Test
+    @DisplayName("Refresh rotates the token and loads its user with two statements")
+    void rotateRefreshToken_ShouldTakeTwoStatements() {
+        String token = refreshTokenService.createRefreshToken(user.getUserId());
+        entityManager.clear();
+        statistics.clear();
+
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotateRefreshToken(token);
+
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(user.getUserId(), rotation.user().getUserId());
+        assertEquals("anna", rotation.user().getUsername());
+        assertNotEquals(token, rotation.refreshToken());
+    }
+
+    @Test
+    @DisplayName("A rotated token cannot be used again")
+    void rotateRefreshToken_ShouldRejectOldToken() {
+        String token = refreshTokenService.createRefreshToken(user.getUserId());
+        refreshTokenService.rotateRefreshToken(token);
+
+        assertThrows(RefreshTokenException.class, () -> refreshTokenService.rotateRefreshToken(token));
+    }
+
+    @Test
+    @DisplayName("An expired token is rejected and removed")
+    void rotateRefreshToken_ShouldRejectAndDeleteExpiredToken() {
+        String token = refreshTokenService.createRefreshToken(user.getUserId());
+        jdbcTemplate.update("UPDATE refresh_tokens SET expiry_date = DATEADD('MINUTE', -1, CURRENT_TIMESTAMP)");
+
+        RefreshTokenException e = assertThrows(RefreshTokenException.class,
+                () -> refreshTokenService.rotateRefreshToken(token));
+
+        assertTrue(e.getMessage().contains("expired"));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM refresh_tokens", Integer.class));
+    }
+}
@@ -0,0 +1,152 @@
+package se.jensen.johanna.socialapp.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import se.jensen.johanna.socialapp.cache.UserCredentialsCache;
+import se.jensen.johanna.socialapp.config.SecondLevelCacheConfig;
+import se.jensen.johanna.socialapp.model.Post;
+import se.jensen.johanna.socialapp.model.Role;
+import se.jensen.johanna.socialapp.model.User;
+import se.jensen.johanna.socialapp.repository.CommentRepository;
+import se.jensen.johanna.socialapp.repository.PostRepository;
+import se.jensen.johanna.socialapp.repository.UserRepository;
+import se.jensen.johanna.socialapp.service.helper.EntityProvider;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Counts the SELECTs of the user and post lookups that run on every authenticated request,
+ * cold and then warm from the second-level cache. Each lookup runs in its own transaction,
+ * like separate requests do.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({SecondLevelCacheConfig.class, MyUserDetailsService.class, UserCredentialsCache.class, SimpleMeterRegistry.class,
+        EntityProvider.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SecondLevelCacheTest {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PostRepository postRepository;
+    @Autowired
+    private CommentRepository commentRepository;
+    @Autowired
+    private MyUserDetailsService userDetailsService;
+    @Autowired
+    private EntityProvider entityProvider;
+
+    private Statistics statistics;
+    private TransactionTemplate transaction;
+    private User user;
+    private Post post;
+
+    @BeforeEach
+    void setUp() {
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        statistics = sessionFactory.getStatistics();
+        transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> {
+            user = new User();
+            user.setUsername("cached");
+            user.setEmail("cached@example.com");
+            user.setPassword("hashed");
+            user.setRole(Role.MEMBER);
+            userRepository.save(user);
+            post = new Post();
+            post.setText("cached post");
+            post.setUser(user);
+            postRepository.save(post);
+        });
+        sessionFactory.getCache().evictAllRegions();
+    }
+
+    @AfterEach
+    void tearDown() {
+        transaction.executeWithoutResult(status -> {
+            postRepository.deleteAll();
+            userRepository.deleteAll();
+        });
+    }
+
+    @Test
+    @DisplayName("loadUserByUsername: 1 SELECT cold, 0 warm")
+    void loadUserByUsername_ShouldNotSelect_WhenCached() {
+        assertEquals(1, countSelects(() -> userDetailsService.loadUserByUsername("cached")));
+        assertEquals(0, countSelects(() -> userDetailsService.loadUserByUsername("cached")));
+    }
+
+    @Test
+    @DisplayName("getUserOrThrow: 1 SELECT cold, 0 warm")
+    void getUserOrThrow_ShouldNotSelect_WhenCached() {
+        assertEquals(1, countSelects(() -> entityProvider.getUserOrThrow(user.getUserId())));
+        assertEquals(0, countSelects(() -> entityProvider.getUserOrThrow(user.getUserId())));
+    }
+
+    @Test
+    @DisplayName("findByEmail: 1 SELECT cold, 0 warm")
+    void findByEmail_ShouldNotSelect_WhenCached() {
+        assertEquals(1, countSelects(() -> userRepository.findByEmail("cached@example.com")));
+        assertEquals(0, countSelects(() -> userRepository.findByEmail("cached@example.com")));
+    }
+
+    @Test
+    @DisplayName("getPostOrThrow with author: 2 SELECTs cold, 0 warm")
+    void getPostOrThrow_ShouldNotSelect_WhenCached() {
+        Runnable loadPostAndAuthor = () -> entityProvider.getPostOrThrow(post.getPostId()).getUser().getUsername();
+
+        assertEquals(2, countSelects(loadPostAndAuthor));
+        assertEquals(0, countSelects(loadPostAndAuthor));
+    }
+
+    @Test
+    @DisplayName("Updating a user refreshes the cached entity instead of serving stale data")
+    void updateUser_ShouldNotServeStaleEntity() {
+        entityProvider.getUserOrThrow(user.getUserId());
+        transaction.executeWithoutResult(status ->
+                entityProvider.getUserOrThrow(user.getUserId()).setBio("updated"));
+
+        User reloaded = transaction.execute(status -> entityProvider.getUserOrThrow(user.getUserId()));
+
+        assertEquals("updated", reloaded.getBio());
+    }
+
+    @Test
+    @DisplayName("Bumping the comments version of a post keeps the cached post")
+    void bumpCommentsVersion_ShouldKeepCachedPost() {
+        Runnable loadPostAndAuthor = () -> entityProvider.getPostOrThrow(post.getPostId()).getUser().getUsername();
+        countSelects(loadPostAndAuthor);
+
+        transaction.executeWithoutResult(status -> commentRepository.bumpCommentsVersion(post.getPostId()));
+
+        Long version = transaction.execute(status -> commentRepository.findCommentsVersion(post.getPostId()).orElseThrow());
+
+        assertEquals(0, countSelects(loadPostAndAuthor));
+        assertEquals(1L, version);
+    }
+
+    private long countSelects(Runnable request) {
+        statistics.clear();
+        transaction.executeWithoutResult(status -> request.run());
+        return statistics.getPrepareStatementCount();
+    }
+}
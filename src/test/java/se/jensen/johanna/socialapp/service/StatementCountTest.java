@@ -0,0 +1,142 @@
+package se.jensen.johanna.socialapp.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+import se.jensen.johanna.socialapp.cache.CacheInvalidationBus;
+import se.jensen.johanna.socialapp.cache.RequestCoalescer;
+import se.jensen.johanna.socialapp.config.SecondLevelCacheConfig;
+import se.jensen.johanna.socialapp.mapper.CommentMapperImpl;
+import se.jensen.johanna.socialapp.mapper.PostMapperImpl;
+import se.jensen.johanna.socialapp.model.*;
+import se.jensen.johanna.socialapp.service.helper.EntityProvider;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Regression test for N+1 loading on list endpoints.
+ * The number of SQL statements per endpoint must not grow with the number of rows.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({SecondLevelCacheConfig.class, CacheInvalidationBus.class, RequestCoalescer.class, SimpleMeterRegistry.class,
+        PostService.class, CommentService.class, EntityProvider.class,
+        PostMapperImpl.class, CommentMapperImpl.class})
+class StatementCountTest {
+
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private PostService postService;
+    @Autowired
+    private CommentService commentService;
+
+    private Statistics statistics;
+    private TestEntities entities;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        entities = new TestEntities(entityManager);
+    }
+
+    @Test
+    @DisplayName("GET /posts loads posts and authors with one statement")
+    void getAllPosts_ShouldNotLoadAuthorsPerRow() {
+        for (int i = 0; i < 5; i++) {
+            entities.createPost(entities.createUser());
+        }
+
+        long statements = countStatements(() ->
+                postService.getAllPosts(PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "createdAt"))));
+
+        assertEquals(1, statements);
+    }
+
+    @Test
+    @DisplayName("GET /posts/{postId} loads post and author with one statement")
+    void getPost_ShouldLoadAuthorInSameStatement() {
+        Post post = entities.createPost(entities.createUser());
+
+        long statements = countStatements(() -> postService.getPost(post.getPostId()));
+
+        assertEquals(1, statements);
+    }
+
+    @Test
+    @DisplayName("GET /posts/{postId}/comments uses the same number of statements for 2 and 8 comments")
+    void findAllMainComments_ShouldNotGrowWithNumberOfComments() {
+        Post smallPost = createPostWithComments(2);
+        Post bigPost = createPostWithComments(8);
+
+        long small = countStatements(() -> commentService.findAllMainComments(
+                smallPost.getPostId(), null, PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "createdAt"))));
+        long big = countStatements(() -> commentService.findAllMainComments(
+                bigPost.getPostId(), null, PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "createdAt"))));
+
+        assertEquals(small, big);
+        // comment rows, reply rows, replies of replies, grouped like counts
+        assertEquals(4, big);
+    }
+
+    @Test
+    @DisplayName("GET /comments/{commentId}/replies/scroll uses the same number of statements for 2 and 8 replies")
+    void scrollRepliesForComment_ShouldNotGrowWithNumberOfReplies() {
+        Comment smallParent = createPostWithComments(1).getComments().get(0);
+        Comment bigParent = createPostWithComments(1).getComments().get(0);
+        addReplies(smallParent, 2);
+        addReplies(bigParent, 8);
+
+        long small = countStatements(() -> commentService.scrollRepliesForComment(
+                smallParent.getCommentId(), null, null, 10));
+        long big = countStatements(() -> commentService.scrollRepliesForComment(
+                bigParent.getCommentId(), null, null, 10));
+
+        assertEquals(small, big);
+    }
+
+    private long countStatements(Runnable call) {
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+        call.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    /**
+     * Creates a post with main comments by different users, each with one reply by yet another user.
+     */
+    private Post createPostWithComments(int comments) {
+        Post post = entities.createPost(entities.createUser());
+        for (int i = 0; i < comments; i++) {
+            Comment comment = new Comment();
+            comment.setText("comment " + i);
+            comment.setUser(entities.createUser());
+            comment.setPost(post);
+            post.getComments().add(comment);
+            entityManager.persist(comment);
+            addReplies(comment, 1);
+        }
+        return post;
+    }
+
+    private void addReplies(Comment parent, int replies) {
+        for (int i = 0; i < replies; i++) {
+            Comment reply = new Comment();
+            reply.setText("reply " + i);
+            reply.setUser(entities.createUser());
+            parent.addReply(reply);
+            entityManager.persist(reply);
+        }
+    }
+}
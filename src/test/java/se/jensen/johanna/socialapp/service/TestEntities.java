@@ -0,0 +1,38 @@
+package se.jensen.johanna.socialapp.service;
+
+import jakarta.persistence.EntityManager;
+import se.jensen.johanna.socialapp.model.Post;
+import se.jensen.johanna.socialapp.model.Role;
+import se.jensen.johanna.socialapp.model.User;
+
+/**
+ * Persists users and posts for tests that run against the database.
+ * Every user gets a username and email that are unique within one instance.
+ */
+class TestEntities {
+    private final EntityManager entityManager;
+    private int userCounter;
+
+    TestEntities(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    User createUser() {
+        userCounter++;
+        User user = new User();
+        user.setUsername("user" + userCounter);
+        user.setEmail("user" + userCounter + "@example.com");
+        user.setPassword("hashed");
+        user.setRole(Role.MEMBER);
+        entityManager.persist(user);
+        return user;
+    }
+
+    Post createPost(User author) {
+        Post post = new Post();
+        post.setText("post by " + author.getUsername());
+        post.setUser(author);
+        entityManager.persist(post);
+        return post;
+    }
+}
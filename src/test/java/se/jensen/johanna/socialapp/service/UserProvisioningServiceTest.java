@@ -0,0 +1,124 @@
+package se.jensen.johanna.socialapp.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+import se.jensen.johanna.socialapp.cache.CacheInvalidationBus;
+import se.jensen.johanna.socialapp.dto.RegisterUserRequest;
+import se.jensen.johanna.socialapp.dto.admin.BulkUserResponse;
+import se.jensen.johanna.socialapp.dto.admin.BulkUserResult.Status;
+import se.jensen.johanna.socialapp.mapper.PostMapperImpl;
+import se.jensen.johanna.socialapp.mapper.UserMapperImpl;
+import se.jensen.johanna.socialapp.model.Role;
+import se.jensen.johanna.socialapp.model.User;
+import se.jensen.johanna.socialapp.repository.UserRepository;
+import se.jensen.johanna.socialapp.security.BoundedPasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "app.provisioning.chunk-size=50")
+@ActiveProfiles("test")
+@Import({UserProvisioningService.class, UserMapperImpl.class, PostMapperImpl.class, CacheInvalidationBus.class,
+        UserProvisioningServiceTest.Config.class})
+class UserProvisioningServiceTest {
+
+    @Autowired
+    private UserProvisioningService userProvisioningService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private BoundedPasswordEncoder passwordEncoder;
+    @Autowired
+    private EntityManager entityManager;
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        BoundedPasswordEncoder passwordEncoder() {
+            return new BoundedPasswordEncoder(new BCryptPasswordEncoder(4), 1, 1, 1, new SimpleMeterRegistry());
+        }
+
+        @Bean
+        LocalValidatorFactoryBean validator() {
+            return new LocalValidatorFactoryBean();
+        }
+    }
+
+    @Test
+    @DisplayName("Creates valid rows and reports invalid, duplicate and already registered ones")
+    void provision_ShouldReportEveryRow() {
+        User existing = new User();
+        existing.setUsername("taken");
+        existing.setEmail("taken@example.com");
+        existing.setPassword("hashed");
+        existing.setRole(Role.MEMBER);
+        userRepository.saveAndFlush(existing);
+
+        BulkUserResponse response = userProvisioningService.provision(List.of(
+                new RegisterUserRequest("anna@example.com", "anna", "password1", "password1"),
+                new RegisterUserRequest("bert@example.com", "bert", "short", "short"),
+                new RegisterUserRequest("cleo@example.com", "cleo", "password1", "password2"),
+                new RegisterUserRequest("anna@example.com", "anna2", "password1", "password1"),
+                new RegisterUserRequest("taken@example.com", "dana", "password1", "password1"),
+                new RegisterUserRequest("erik@example.com", "taken", "password1", "password1")));
+
+        assertEquals(1, response.created());
+        assertEquals(5, response.rejected());
+        assertEquals(List.of(Status.CREATED, Status.INVALID, Status.INVALID, Status.DUPLICATE, Status.DUPLICATE, Status.DUPLICATE),
+                response.results().stream().map(r -> r.status()).toList());
+        assertEquals(4, response.results().get(3).row());
+
+        User anna = userRepository.findById(response.results().get(0).userId()).orElseThrow();
+        assertEquals(Role.MEMBER, anna.getRole());
+        assertTrue(passwordEncoder.matches("password1", anna.getPassword()));
+    }
+
+    @Test
+    @DisplayName("CSV rows with quoted fields are parsed, confirmPassword is optional")
+    void provisionCsv_ShouldParseQuotedFields() {
+        String csv = """
+                email,username,password
+                anna@example.com,anna,"pass,word"
+                "bert@example.com",bert,"say ""hi"" twice"
+                """;
+
+        BulkUserResponse response = userProvisioningService.provisionCsv(csv);
+
+        assertEquals(2, response.created());
+        User bert = userRepository.findById(response.results().get(1).userId()).orElseThrow();
+        assertEquals("bert@example.com", bert.getEmail());
+        assertTrue(passwordEncoder.matches("say \"hi\" twice", bert.getPassword()));
+    }
+
+    @Test
+    @DisplayName("Uniqueness checks and inserts use a constant number of statements per chunk")
+    void provision_ShouldUseSetBasedQueriesAndBatches() {
+        List<RegisterUserRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            requests.add(new RegisterUserRequest("user" + i + "@example.com", "user" + i, "password1", "password1"));
+        }
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        BulkUserResponse response = userProvisioningService.provision(requests);
+
+        assertEquals(200, response.created());
+        long statements = statistics.getPrepareStatementCount();
+        // 4 chunks of 50: 2 uniqueness queries, 1 sequence call and 1 insert batch each
+        assertTrue(statements <= 16, "expected set-based queries and batched inserts, got " + statements + " statements");
+    }
+}